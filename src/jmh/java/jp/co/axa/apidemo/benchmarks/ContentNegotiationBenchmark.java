@@ -0,0 +1,105 @@
+package jp.co.axa.apidemo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import jp.co.axa.apidemo.entities.Employee;
+
+/**
+ * Encoding and decoding of List<Employee> in the negotiable formats (JSON,
+ * Smile, CBOR), optionally gzipped the way responses above the compression
+ * threshold are. The payload size of each combination is printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ContentNegotiationBenchmark {
+
+    @Param({ "10000" })
+    private int size;
+
+    @Param({ "json", "smile", "cbor" })
+    private String format;
+
+    @Param({ "false", "true" })
+    private boolean gzip;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private List<Employee> employees;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory()).build();
+        JavaType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, Employee.class);
+        writer = objectMapper.writerFor(listType);
+        reader = objectMapper.readerFor(listType);
+        employees = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Employee e = EmployeeServiceBenchmark.employee(i);
+            e.setId(4000000L + i);
+            e.setVersion(0L);
+            employees.add(e);
+        }
+        encoded = encode();
+        System.out.println("Payload size for format=" + format + ", gzip=" + gzip + ": " + encoded.length + " bytes");
+    }
+
+    private JsonFactory factory() {
+        switch (format) {
+        case "smile":
+            return new SmileFactory();
+        case "cbor":
+            return new CBORFactory();
+        default:
+            return new JsonFactory();
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes) : bytes) {
+            writer.writeValue(out, employees);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public List<Employee> decode() throws IOException {
+        try (InputStream in = gzip ? new GZIPInputStream(new ByteArrayInputStream(encoded))
+                : new ByteArrayInputStream(encoded)) {
+            return reader.readValue(in);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package jp.co.axa.apidemo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+
+import jp.co.axa.apidemo.ApiDemoApplication;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeService;
+
+/**
+ * EmployeeService CRUD operations against the embedded H2 database, with and
+ * without the employee cache
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmployeeServiceBenchmark {
+
+    @Param({ "10000" })
+    private int rows;
+
+    @Param({ "caffeine", "none" })
+    private String cacheType;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private List<Long> ids;
+
+    private List<Employee> batch;
+
+    static Employee employee(int i) {
+        Employee employee = new Employee();
+        employee.setName("Employee " + i);
+        employee.setSalary(1000 + i % 9000);
+        employee.setDepartment("Department " + i % 50);
+        return employee;
+    }
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(ApiDemoApplication.class)
+                .properties("server.port=0", "logging.level.jp.co=WARN", "spring.cache.type=" + cacheType)
+                .run();
+        employeeService = context.getBean(EmployeeService.class);
+        List<Employee> employees = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            employees.add(employee(i));
+        }
+        ids = employeeService.saveEmployees(employees);
+        batch = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++) {
+            batch.add(employee(i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private Long randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    @Benchmark
+    public Employee getEmployee() {
+        return employeeService.getEmployee(randomId());
+    }
+
+    @Benchmark
+    public EmployeePage retrieveEmployeesPage() {
+        return employeeService.retrieveEmployees(null, EmployeeService.DEFAULT_PAGE_SIZE, Sort.Direction.ASC);
+    }
+
+    @Benchmark
+    public void updateEmployee() {
+        employeeService.updateEmployee(randomId(), employee(ThreadLocalRandom.current().nextInt(rows)), null);
+    }
+
+    @Benchmark
+    public void saveAndDeleteEmployee() {
+        employeeService.deleteEmployee(employeeService.saveEmployee(employee(0)).getId());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public void saveEmployeeSingle100() {
+        for (Employee employee : batch) {
+            employeeService.saveEmployee(copy(employee));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public List<Long> saveEmployeesBatch100() {
+        List<Employee> employees = new ArrayList<>(batch.size());
+        for (Employee employee : batch) {
+            employees.add(copy(employee));
+        }
+        return employeeService.saveEmployees(employees);
+    }
+
+    private static Employee copy(Employee employee) {
+        Employee copy = new Employee();
+        copy.setName(employee.getName());
+        copy.setSalary(employee.getSalary());
+        copy.setDepartment(employee.getDepartment());
+        return copy;
+    }
+}
@@ -0,0 +1,84 @@
+package jp.co.axa.apidemo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jp.co.axa.apidemo.ApiDemoApplication;
+import jp.co.axa.apidemo.dto.EmployeeSearchCriteria;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeFields;
+import jp.co.axa.apidemo.services.EmployeeService;
+
+/**
+ * One full list page (query, hydration and JSON serialization) with all
+ * fields versus a sparse fieldset
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FieldsBenchmark {
+
+    @Param({ "10000" })
+    private int rows;
+
+    @Param({ "1000" })
+    private int limit;
+
+    // empty for whole entities
+    @Param({ "", "id,name" })
+    private String fields;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private ObjectMapper objectMapper;
+
+    private List<String> selected;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        context = new SpringApplicationBuilder(ApiDemoApplication.class)
+                .properties("server.port=0", "logging.level.jp.co=WARN").run();
+        employeeService = context.getBean(EmployeeService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        List<Employee> employees = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            employees.add(EmployeeServiceBenchmark.employee(i));
+        }
+        employeeService.saveEmployees(employees);
+        selected = fields.isEmpty() ? null : EmployeeFields.parse(fields);
+        System.out.println("Response size for fields='" + fields + "': " + listPage().length + " bytes");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] listPage() throws JsonProcessingException {
+        if (selected == null) {
+            return objectMapper.writeValueAsBytes(employeeService.retrieveEmployees(null, limit, Sort.Direction.ASC));
+        }
+        return objectMapper.writeValueAsBytes(employeeService.searchEmployeeFields(new EmployeeSearchCriteria(),
+                null, limit, Sort.Direction.ASC, selected));
+    }
+}
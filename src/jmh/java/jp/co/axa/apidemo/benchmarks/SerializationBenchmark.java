@@ -0,0 +1,75 @@
+package jp.co.axa.apidemo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import jp.co.axa.apidemo.entities.Employee;
+
+/**
+ * Jackson serialization of Employee and List<Employee>, using an ObjectMapper
+ * configured the same way Spring Boot configures the HTTP message converters
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    @Param({ "1", "100", "10000" })
+    private int size;
+
+    private ObjectWriter listWriter;
+
+    private ObjectMapper objectMapper;
+
+    private Employee employee;
+
+    private List<Employee> employees;
+
+    private byte[] serializedList;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class,
+                Employee.class));
+        employees = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Employee e = EmployeeServiceBenchmark.employee(i);
+            e.setId(4000000L + i);
+            e.setVersion(0L);
+            employees.add(e);
+        }
+        employee = employees.get(0);
+        serializedList = listWriter.writeValueAsBytes(employees);
+    }
+
+    @Benchmark
+    public byte[] serializeEmployee() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(employee);
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(employees);
+    }
+
+    @Benchmark
+    public Employee[] deserializeList() throws Exception {
+        return objectMapper.readValue(serializedList, Employee[].class);
+    }
+}
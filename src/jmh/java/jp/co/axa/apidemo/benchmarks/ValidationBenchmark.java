@@ -0,0 +1,54 @@
+package jp.co.axa.apidemo.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import jp.co.axa.apidemo.entities.Employee;
+
+/**
+ * Bean validation of the Employee constraints (@NotBlank, @Size, @Min) for a
+ * valid employee and for one violating every constraint
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidationBenchmark {
+
+    private Validator validator;
+
+    private Employee valid;
+
+    private Employee invalid;
+
+    @Setup
+    public void setUp() {
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        valid = EmployeeServiceBenchmark.employee(1);
+        invalid = new Employee();
+        invalid.setName("");
+        invalid.setSalary(0);
+        invalid.setDepartment("x");
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Employee>> validateValid() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Employee>> validateInvalid() {
+        return validator.validate(invalid);
+    }
+}
@@ -1,14 +1,28 @@
 package jp.co.axa.apidemo;
 
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import springfox.documentation.swagger2.annotations.EnableSwagger2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+
+import jp.co.axa.apidemo.dto.ImportResult;
+import jp.co.axa.apidemo.metrics.StartupTimeline;
+import jp.co.axa.apidemo.services.EmployeeImportService;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Main Spring boot application
  */
-@EnableSwagger2
+// caching advice wraps the transactional one, so evictions happen after commit
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
 @SpringBootApplication
+@Slf4j
 public class ApiDemoApplication {
 
 	/**
@@ -17,7 +31,28 @@ public class ApiDemoApplication {
 	 * @param args
 	 */
 	public static void main(String[] args) {
-		SpringApplication.run(ApiDemoApplication.class, args);
+		SpringApplication application = new SpringApplication(ApiDemoApplication.class);
+		// logs how long each startup phase took once the application is ready
+		application.addListeners(new StartupTimeline());
+		application.run(args);
+	}
+
+	/**
+	 * Imports the CSV file given with --employee.import.file=... at startup
+	 * 
+	 * @param employeeImportService
+	 * @param file
+	 * @return CommandLineRunner
+	 */
+	@Bean
+	@ConditionalOnProperty("employee.import.file")
+	public CommandLineRunner employeeImportRunner(EmployeeImportService employeeImportService,
+			@Value("${employee.import.file}") String file) {
+		return args -> {
+			ImportResult result = employeeImportService.importFile(Paths.get(file));
+			result.getErrors().forEach(error -> log.warn("Line {} rejected: {} {}", error.getIndex(),
+					error.getField(), error.getMessage()));
+		};
 	}
 
 }
@@ -0,0 +1,60 @@
+package jp.co.axa.apidemo;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Binary representations next to JSON: every api response, errors included,
+ * is also available as application/x-jackson-smile or application/cbor through
+ * the Accept header, and request bodies may use them too. Both are written by
+ * the same Boot-configured mapper as JSON, which stays the default.
+ *
+ * Responses above server.compression.min-response-size are gzipped by Tomcat,
+ * which skips responses with a strong ETag since the gzipped bytes would share
+ * it. Pages of employees therefore carry weak ETags, while the strong ETag of a
+ * single employee names the format and is never compressed (see EmployeeETags).
+ */
+@Configuration
+public class ContentNegotiationConfiguration implements WebMvcConfigurer {
+
+    // replaces the default smile converter of Spring MVC, keeping its position after JSON
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+            Jackson2ObjectMapperBuilder jacksonObjectMapperBuilder) {
+        return new MappingJackson2SmileHttpMessageConverter(
+                jacksonObjectMapperBuilder.factory(new SmileFactory()).build());
+    }
+
+    // replaces the default cbor converter of Spring MVC, keeping its position after JSON
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+            Jackson2ObjectMapperBuilder jacksonObjectMapperBuilder) {
+        return new MappingJackson2CborHttpMessageConverter(
+                jacksonObjectMapperBuilder.factory(new CBORFactory()).build());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // the representation depends on Accept, which shared caches must key on
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                return true;
+            }
+        }).addPathPatterns("/api/**");
+    }
+}
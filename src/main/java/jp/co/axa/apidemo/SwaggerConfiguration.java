@@ -0,0 +1,17 @@
+package jp.co.axa.apidemo;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import springfox.documentation.swagger2.annotations.EnableSwagger2;
+
+/**
+ * Swagger 2 documentation of the api (/v2/api-docs, /swagger-ui.html). Left
+ * out of the fast-startup profile, as scanning every handler method for it is
+ * one of the larger costs at startup.
+ */
+@Configuration
+@EnableSwagger2
+@Profile("!fast-startup")
+public class SwaggerConfiguration {
+}
@@ -0,0 +1,217 @@
+package jp.co.axa.apidemo.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency budget whose limit follows the observed latency. Requests above
+ * the limit wait up to maxWait in a queue of at most maxQueue requests and are
+ * rejected beyond that.
+ *
+ * The limit is revised once per window of samples (at least 10, or the
+ * current limit): while the window's mean latency stays within tolerance times
+ * the baseline latency and the budget was at least half used, it grows by
+ * sqrt(limit); once latency rises beyond that it shrinks in proportion, by at
+ * most half. The baseline is a slow moving average of the window means. It
+ * only follows windows that were healthy or lightly used, so it adapts to a
+ * slower backend but not to the queueing of an overload.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    /**
+     * Result of acquire()
+     */
+    public enum Outcome {
+        ADMITTED, QUEUED, REJECTED
+    }
+
+    private static final int MIN_WINDOW = 10;
+
+    private final String name;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final int maxQueue;
+
+    private final long maxWaitNanos;
+
+    private final double tolerance;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition permitReleased = lock.newCondition();
+
+    private double limit;
+
+    private int inFlight;
+
+    private int queued;
+
+    private double baselineNanos;
+
+    private int windowSamples;
+
+    private long windowSumNanos;
+
+    private int windowMaxInFlight;
+
+    /**
+     * @param name         budget name, used in metrics and errors
+     * @param initialLimit starting limit
+     * @param minLimit     lowest limit
+     * @param maxLimit     highest limit
+     * @param maxQueue     requests waiting for a permit at most
+     * @param maxWaitMs    longest wait for a permit
+     * @param tolerance    latency growth over the no-load latency accepted
+     *                     before the limit shrinks
+     */
+    public AdaptiveConcurrencyLimit(String name, int initialLimit, int minLimit, int maxLimit, int maxQueue,
+            long maxWaitMs, double tolerance) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException(
+                    "Limits of " + name + " must satisfy 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Takes a permit, waiting for one if the budget is exhausted and the queue
+     * has room. Every admitted or queued call must be followed by release().
+     *
+     * @return Outcome, REJECTED when no permit was taken
+     */
+    public Outcome acquire() {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                admit();
+                return Outcome.ADMITTED;
+            }
+            if (queued >= maxQueue || maxWaitNanos <= 0) {
+                return Outcome.REJECTED;
+            }
+            queued++;
+            try {
+                long remaining = maxWaitNanos;
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        return Outcome.REJECTED;
+                    }
+                    remaining = permitReleased.awaitNanos(remaining);
+                }
+                admit();
+                return Outcome.QUEUED;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Outcome.REJECTED;
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a permit and records the latency of the request that held it
+     *
+     * @param latencyNanos time from admission to completion
+     */
+    public void release(long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            int previousLimit = (int) limit;
+            sample(latencyNanos);
+            if ((int) limit > previousLimit) {
+                permitReleased.signalAll();
+            } else {
+                permitReleased.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void admit() {
+        inFlight++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+    }
+
+    private void sample(long latencyNanos) {
+        windowSamples++;
+        windowSumNanos += latencyNanos;
+        if (windowSamples < Math.max(MIN_WINDOW, (int) limit)) {
+            return;
+        }
+        boolean used = windowMaxInFlight >= limit / 2;
+        double meanNanos = Math.max(1, (double) windowSumNanos / windowSamples);
+        if (baselineNanos == 0) {
+            baselineNanos = meanNanos;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baselineNanos / meanNanos));
+        if (gradient < 1.0) {
+            limit = Math.max(minLimit, limit * gradient);
+        } else if (used) {
+            limit = Math.min(maxLimit, limit + Math.sqrt(limit));
+        }
+        if (gradient >= 1.0 || !used) {
+            baselineNanos = baselineNanos * 0.95 + meanNanos * 0.05;
+        }
+        windowSamples = 0;
+        windowSumNanos = 0;
+        windowMaxInFlight = inFlight;
+    }
+
+    /**
+     * @return budget name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return current limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return requests holding a permit
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return requests waiting for a permit
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package jp.co.axa.apidemo.admission;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import jp.co.axa.apidemo.error.ServiceOverloadedException;
+
+/**
+ * Admission control in front of the employee API: reads and writes each get an
+ * adaptive concurrency budget, and requests beyond it are shed with 503 and
+ * Retry-After instead of piling up on Tomcat threads waiting for a
+ * connection. Streaming and bulk endpoints (export, change feed, import) are
+ * not budgeted, as they hold a request for far longer than the others.
+ */
+@Component
+@ConditionalOnProperty(name = "employee.admission.enabled", havingValue = "true")
+public class AdmissionControl implements AsyncHandlerInterceptor, WebMvcConfigurer {
+
+    public static final String COUNTER_NAME = "employee.admission";
+
+    private static final String PERMIT = AdmissionControl.class.getName() + ".permit";
+
+    private static final String ADMITTED_AT = AdmissionControl.class.getName() + ".admittedAt";
+
+    @Value("${employee.admission.read.initial-limit:20}")
+    private int readInitialLimit = 20;
+
+    @Value("${employee.admission.read.min-limit:4}")
+    private int readMinLimit = 4;
+
+    @Value("${employee.admission.read.max-limit:200}")
+    private int readMaxLimit = 200;
+
+    @Value("${employee.admission.write.initial-limit:10}")
+    private int writeInitialLimit = 10;
+
+    @Value("${employee.admission.write.min-limit:2}")
+    private int writeMinLimit = 2;
+
+    @Value("${employee.admission.write.max-limit:50}")
+    private int writeMaxLimit = 50;
+
+    @Value("${employee.admission.max-queue:50}")
+    private int maxQueue = 50;
+
+    @Value("${employee.admission.max-wait-ms:50}")
+    private long maxWaitMs = 50;
+
+    @Value("${employee.admission.tolerance:2.0}")
+    private double tolerance = 2.0;
+
+    @Value("${employee.admission.retry-after-seconds:1}")
+    private long retryAfterSeconds = 1;
+
+    private AdaptiveConcurrencyLimit reads;
+
+    private AdaptiveConcurrencyLimit writes;
+
+    @PostConstruct
+    public void start() {
+        reads = register(new AdaptiveConcurrencyLimit("read", readInitialLimit, readMinLimit, readMaxLimit, maxQueue,
+                maxWaitMs, tolerance));
+        writes = register(new AdaptiveConcurrencyLimit("write", writeInitialLimit, writeMinLimit, writeMaxLimit,
+                maxQueue, maxWaitMs, tolerance));
+    }
+
+    // global registry, so the budgets also work where no MeterRegistry bean exists
+    private static AdaptiveConcurrencyLimit register(AdaptiveConcurrencyLimit budget) {
+        Gauge.builder(COUNTER_NAME + ".limit", budget, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current concurrency limit of the budget").tag("budget", budget.getName())
+                .register(Metrics.globalRegistry);
+        Gauge.builder(COUNTER_NAME + ".in.flight", budget, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Requests holding a permit of the budget").tag("budget", budget.getName())
+                .register(Metrics.globalRegistry);
+        return budget;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this).addPathPatterns("/api/v1/employees", "/api/v1/employees/**")
+                .excludePathPatterns("/api/v1/employees/export", "/api/v1/employees/changes",
+                        "/api/v1/employees/import");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            // the permit was returned when the async processing started
+            return true;
+        }
+        AdaptiveConcurrencyLimit budget = isRead(request) ? reads : writes;
+        AdaptiveConcurrencyLimit.Outcome outcome = budget.acquire();
+        Metrics.counter(COUNTER_NAME, "budget", budget.getName(), "outcome", outcome.name().toLowerCase())
+                .increment();
+        if (outcome == AdaptiveConcurrencyLimit.Outcome.REJECTED) {
+            throw new ServiceOverloadedException(budget.getName(), retryAfterSeconds);
+        }
+        request.setAttribute(PERMIT, budget);
+        request.setAttribute(ADMITTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        release(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        release(request);
+    }
+
+    private static void release(HttpServletRequest request) {
+        AdaptiveConcurrencyLimit budget = (AdaptiveConcurrencyLimit) request.getAttribute(PERMIT);
+        if (budget != null) {
+            request.removeAttribute(PERMIT);
+            budget.release(System.nanoTime() - (Long) request.getAttribute(ADMITTED_AT));
+        }
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        // a lookup is a read sent as POST
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)
+                || request.getRequestURI().endsWith("/employees/lookup");
+    }
+
+    /**
+     * @return budget of GET and HEAD requests and lookups
+     */
+    public AdaptiveConcurrencyLimit getReads() {
+        return reads;
+    }
+
+    /**
+     * @return budget of the other requests
+     */
+    public AdaptiveConcurrencyLimit getWrites() {
+        return writes;
+    }
+}
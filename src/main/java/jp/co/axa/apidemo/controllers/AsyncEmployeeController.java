@@ -0,0 +1,205 @@
+package jp.co.axa.apidemo.controllers;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import jp.co.axa.apidemo.dto.BatchResult;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.EmployeeSearchCriteria;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.logging.AccessLogFilter;
+import jp.co.axa.apidemo.services.EmployeeExecutorConfiguration;
+import jp.co.axa.apidemo.services.EmployeeService;
+
+/**
+ * Async variant of EmployeeController under /api/v1/async. Each request hands
+ * its JPA work to the bounded employee executor and releases the servlet
+ * thread; the response is written once the future completes. When the
+ * executor queue is full the request is answered with 503.
+ */
+@RestController
+@RequestMapping("/api/v1/async")
+@ConditionalOnProperty(name = "employee.async.enabled", havingValue = "true")
+public class AsyncEmployeeController {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    @Qualifier(EmployeeExecutorConfiguration.EMPLOYEE_EXECUTOR)
+    private AsyncTaskExecutor employeeExecutor;
+
+    /**
+     * Get employees one keyset page at a time
+     * 
+     * @param after   cursor of the previous page (nextCursor), omitted for the
+     *                first page
+     * @param limit   page size
+     * @param sort    asc or desc on id
+     * @param request
+     * @return CompletableFuture<ResponseEntity<EmployeePage>>
+     */
+    @GetMapping("/employees")
+    public CompletableFuture<ResponseEntity<EmployeePage>> getEmployees(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "" + EmployeeService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(name = "sort", defaultValue = "asc") String sort, HttpServletRequest request) {
+        return CompletableFuture.supplyAsync(() -> {
+            EmployeePage page = employeeService.retrieveEmployees(after, limit, EmployeeController.toDirection(sort));
+            AccessLogFilter.setRowCount(request, page.getContent().size());
+            return ResponseEntity.ok().eTag(EmployeeETags.of(page)).body(page);
+        }, employeeExecutor);
+    }
+
+    /**
+     * Search employees by department, salary range and name prefix, one keyset
+     * page at a time
+     * 
+     * @param department exact department
+     * @param minSalary  inclusive lower salary bound
+     * @param maxSalary  inclusive upper salary bound
+     * @param namePrefix case sensitive prefix of the employee name
+     * @param after      cursor of the previous page (nextCursor), omitted for the
+     *                   first page
+     * @param limit      page size
+     * @param sort       asc or desc on id
+     * @param request
+     * @return CompletableFuture<ResponseEntity<EmployeePage>>
+     */
+    @GetMapping("/employees/search")
+    public CompletableFuture<ResponseEntity<EmployeePage>> searchEmployees(
+            @RequestParam(name = "department", required = false) String department,
+            @RequestParam(name = "minSalary", required = false) Integer minSalary,
+            @RequestParam(name = "maxSalary", required = false) Integer maxSalary,
+            @RequestParam(name = "namePrefix", required = false) String namePrefix,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "" + EmployeeService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(name = "sort", defaultValue = "asc") String sort, HttpServletRequest request) {
+        EmployeeSearchCriteria criteria = new EmployeeSearchCriteria(department, minSalary, maxSalary, namePrefix);
+        return CompletableFuture.supplyAsync(() -> {
+            EmployeePage page = employeeService.searchEmployees(criteria, after, limit,
+                    EmployeeController.toDirection(sort));
+            AccessLogFilter.setRowCount(request, page.getContent().size());
+            return ResponseEntity.ok().eTag(EmployeeETags.of(page)).body(page);
+        }, employeeExecutor);
+    }
+
+    /**
+     * Get single employee as per employeeId, with its version as ETag
+     * 
+     * @param employeeId
+     * @param accept     negotiated format, part of the ETag
+     * @return CompletableFuture<ResponseEntity<Employee>>
+     */
+    @GetMapping("/employees/{employeeId}")
+    public CompletableFuture<ResponseEntity<Employee>> getEmployee(
+            @PathVariable(name = "employeeId") long employeeId,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        return CompletableFuture.supplyAsync(() -> {
+            Employee employee = employeeService.getEmployee(employeeId);
+            return ResponseEntity.ok().eTag(EmployeeETags.of(employee, accept)).body(employee);
+        }, employeeExecutor);
+    }
+
+    /**
+     * Save employee details
+     * 
+     * @param employee
+     * @return CompletableFuture<ResponseEntity<String>>
+     */
+    @PostMapping("/employees")
+    public CompletableFuture<ResponseEntity<String>> saveEmployee(@Valid @RequestBody Employee employee) {
+        return CompletableFuture.supplyAsync(() -> {
+            Employee emp = employeeService.saveEmployee(employee);
+            return new ResponseEntity<String>("Employee with id: " + emp.getId() + " created successfully!",
+                    HttpStatus.CREATED);
+        }, employeeExecutor);
+    }
+
+    /**
+     * Delete single employee record as per employeeId
+     * 
+     * @param employeeId
+     * @return CompletableFuture<ResponseEntity<String>>
+     */
+    @DeleteMapping("/employees/{employeeId}")
+    public CompletableFuture<ResponseEntity<String>> deleteEmployee(
+            @PathVariable(name = "employeeId") Long employeeId) {
+        return CompletableFuture.supplyAsync(() -> {
+            employeeService.deleteEmployee(employeeId);
+            return ResponseEntity.ok("Employee with id: " + employeeId + " deleted successfully!");
+        }, employeeExecutor);
+    }
+
+    /**
+     * Updates details of employee as per employeeId, conditionally on If-Match
+     * when given
+     * 
+     * @param employee
+     * @param employeeId
+     * @param ifMatch
+     * @param accept     negotiated format, part of the new ETag
+     * @return CompletableFuture<ResponseEntity<String>>
+     */
+    @PutMapping("/employees/{employeeId}")
+    public CompletableFuture<ResponseEntity<String>> updateEmployee(@Valid @RequestBody Employee employee,
+            @PathVariable(name = "employeeId") Long employeeId,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        Long expectedVersion = EmployeeETags.expectedVersion(employeeId, ifMatch);
+        return CompletableFuture.supplyAsync(() -> {
+            employeeService.updateEmployee(employeeId, employee, expectedVersion);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (expectedVersion != null) {
+                response.eTag(EmployeeETags.of(expectedVersion + 1, accept));
+            }
+            return response.body("Employee with id: " + employeeId + " updated successfully!");
+        }, employeeExecutor);
+    }
+
+    /**
+     * Save many employees in one request
+     * 
+     * @param employees
+     * @param request
+     * @return CompletableFuture<ResponseEntity<BatchResult>>
+     */
+    @PostMapping("/employees/batch")
+    public CompletableFuture<ResponseEntity<BatchResult>> saveEmployees(@RequestBody List<Employee> employees,
+            HttpServletRequest request) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Long> ids = employeeService.saveEmployees(employees);
+            AccessLogFilter.setRowCount(request, ids.size());
+            return new ResponseEntity<BatchResult>(new BatchResult(ids.size(), ids), HttpStatus.CREATED);
+        }, employeeExecutor);
+    }
+
+    /**
+     * Update many employees in one request
+     * 
+     * @param employees
+     * @param request
+     * @return CompletableFuture<ResponseEntity<BatchResult>>
+     */
+    @PutMapping("/employees/batch")
+    public CompletableFuture<ResponseEntity<BatchResult>> updateEmployees(@RequestBody List<Employee> employees,
+            HttpServletRequest request) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Long> ids = employeeService.updateEmployees(employees);
+            AccessLogFilter.setRowCount(request, ids.size());
+            return ResponseEntity.ok(new BatchResult(ids.size(), ids));
+        }, employeeExecutor);
+    }
+}
@@ -0,0 +1,35 @@
+package jp.co.axa.apidemo.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import jp.co.axa.apidemo.dto.BackupResult;
+import jp.co.axa.apidemo.services.DatabaseBackupService;
+
+/**
+ * Controller class that maps API requests for database backups, available
+ * with the persistent profile
+ */
+@RestController
+@RequestMapping("/api/v1")
+@ConditionalOnProperty("employee.backup.dir")
+public class BackupController {
+
+    @Autowired
+    private DatabaseBackupService databaseBackupService;
+
+    /**
+     * Take an online backup of the database
+     * 
+     * @return ResponseEntity<BackupResult>
+     */
+    @PostMapping("/backups")
+    public ResponseEntity<BackupResult> backup() {
+        return new ResponseEntity<BackupResult>(databaseBackupService.backup(), HttpStatus.CREATED);
+    }
+}
@@ -0,0 +1,49 @@
+package jp.co.axa.apidemo.controllers;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.logging.AccessLogFilter;
+import jp.co.axa.apidemo.services.DepartmentService;
+
+/**
+ * Controller class that maps API requests for department statistics
+ */
+@RestController
+@RequestMapping("/api/v1")
+public class DepartmentController {
+
+    @Autowired
+    private DepartmentService departmentService;
+
+    /**
+     * Get headcount and salary statistics of all departments
+     * 
+     * @param includeMedian also compute the median salary
+     * @return ResponseEntity<List<DepartmentStats>>
+     */
+    @GetMapping("/departments/stats")
+    public ResponseEntity<List<DepartmentStats>> getDepartmentStats(
+            @RequestParam(name = "includeMedian", defaultValue = "false") boolean includeMedian) {
+        List<DepartmentStats> stats = departmentService.retrieveDepartmentStats(includeMedian);
+        AccessLogFilter.setRowCount(stats.size());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Get headcount and salary statistics of a single department
+     * 
+     * @param name          department name
+     * @param includeMedian also compute the median salary
+     * @return ResponseEntity<DepartmentStats>
+     */
+    @GetMapping("/departments/{name}/stats")
+    public ResponseEntity<DepartmentStats> getDepartmentStats(@PathVariable(name = "name") String name,
+            @RequestParam(name = "includeMedian", defaultValue = "false") boolean includeMedian) {
+        return ResponseEntity.ok(departmentService.getDepartmentStats(name, includeMedian));
+    }
+}
@@ -0,0 +1,49 @@
+package jp.co.axa.apidemo.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jp.co.axa.apidemo.services.EmployeeChangeFeed;
+
+/**
+ * Controller class that streams employee changes as Server-Sent Events
+ */
+@RestController
+@RequestMapping("/api/v1")
+public class EmployeeChangeController {
+
+    @Autowired
+    private EmployeeChangeFeed employeeChangeFeed;
+
+    @Value("${employee.changes.timeout-ms:3600000}")
+    private long timeoutMs = 3600000;
+
+    /**
+     * Stream created, updated and deleted employees. Each event carries its
+     * sequence number as id; a reconnecting client resumes after the
+     * Last-Event-ID it sends. A "reset" event means changes were missed and the
+     * employees have to be read again.
+     * 
+     * @param lastEventId sequence of the last change received, omitted to start
+     *                    with the next change
+     * @return ResponseEntity<SseEmitter>
+     */
+    @GetMapping(value = "/employees/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> getChanges(
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        if (!employeeChangeFeed.subscribe(emitter, lastEventId)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+}
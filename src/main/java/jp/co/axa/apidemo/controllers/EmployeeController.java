@@ -1,52 +1,238 @@
 package jp.co.axa.apidemo.controllers;
 
+import jp.co.axa.apidemo.dto.BatchResult;
+import jp.co.axa.apidemo.dto.EmployeeFieldsPage;
+import jp.co.axa.apidemo.dto.EmployeeLookup;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.EmployeeSearchCriteria;
+import jp.co.axa.apidemo.dto.ImportResult;
 import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.error.InvalidRequestException;
+import jp.co.axa.apidemo.logging.AccessLogFilter;
+import jp.co.axa.apidemo.services.EmployeeFields;
+import jp.co.axa.apidemo.services.EmployeeImportService;
 import jp.co.axa.apidemo.services.EmployeeService;
-import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
 /**
  * Controller class that maps API requests for Employee
  */
 @RestController
-@Slf4j
 @RequestMapping("/api/v1")
 public class EmployeeController {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
     @Autowired
     private EmployeeService employeeService;
 
+    @Autowired
+    private EmployeeImportService employeeImportService;
+
+    @Value("${employee.export.timeout-ms:3600000}")
+    private long exportTimeoutMs = 3600000;
+
     /**
-     * Get all employees
+     * Get employees one keyset page at a time
      * 
-     * @return ResponseEntity<List<Employee>>
+     * @param after cursor of the previous page (nextCursor), omitted for the first
+     *              page
+     * @param limit page size
+     * @param sort  asc or desc on id
+     * @return ResponseEntity<EmployeePage>
      */
     @GetMapping("/employees")
-    public ResponseEntity<List<Employee>> getEmployees() {
-        log.info("Inside getEmployees()");
-        return ResponseEntity.ok(employeeService.retrieveEmployees());
+    public ResponseEntity<EmployeePage> getEmployees(@RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "" + EmployeeService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(name = "sort", defaultValue = "asc") String sort) {
+        EmployeePage page = employeeService.retrieveEmployees(after, limit, toDirection(sort));
+        AccessLogFilter.setRowCount(page.getContent().size());
+        return ResponseEntity.ok().eTag(EmployeeETags.of(page)).body(page);
+    }
+
+    /**
+     * Get employees one keyset page at a time, reduced to the requested fields
+     * 
+     * @param fields comma separated subset of id, name, salary, department and
+     *               version; the id is always included
+     * @param after  cursor of the previous page (nextCursor), omitted for the
+     *               first page
+     * @param limit  page size
+     * @param sort   asc or desc on id
+     * @return ResponseEntity<EmployeeFieldsPage>
+     */
+    @GetMapping(value = "/employees", params = { "fields", "!ids" })
+    public ResponseEntity<EmployeeFieldsPage> getEmployeeFields(@RequestParam(name = "fields") String fields,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "" + EmployeeService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(name = "sort", defaultValue = "asc") String sort) {
+        EmployeeFieldsPage page = employeeService.searchEmployeeFields(new EmployeeSearchCriteria(), after, limit,
+                toDirection(sort), EmployeeFields.parse(fields));
+        AccessLogFilter.setRowCount(page.getContent().size());
+        return ResponseEntity.ok().eTag(EmployeeETags.of(page)).body(page);
+    }
+
+    /**
+     * Get many employees by id in one request. Unknown ids are listed as missing
+     * instead of failing the request.
+     * 
+     * @param ids comma separated employee ids
+     * @return ResponseEntity<EmployeeLookup>
+     */
+    @GetMapping(value = "/employees", params = "ids")
+    public ResponseEntity<EmployeeLookup> getEmployeesByIds(@RequestParam(name = "ids") List<Long> ids) {
+        EmployeeLookup lookup = employeeService.lookupEmployees(ids);
+        AccessLogFilter.setRowCount(lookup.getEmployees().size());
+        return ResponseEntity.ok(lookup);
+    }
+
+    /**
+     * Get many employees by id, for id lists too long for a query string
+     * 
+     * @param ids
+     * @return ResponseEntity<EmployeeLookup>
+     */
+    @PostMapping("/employees/lookup")
+    public ResponseEntity<EmployeeLookup> lookupEmployees(@RequestBody List<Long> ids) {
+        EmployeeLookup lookup = employeeService.lookupEmployees(ids);
+        AccessLogFilter.setRowCount(lookup.getEmployees().size());
+        return ResponseEntity.ok(lookup);
+    }
+
+    /**
+     * Search employees by department, salary range and name prefix, one keyset
+     * page at a time
+     * 
+     * @param department exact department
+     * @param minSalary  inclusive lower salary bound
+     * @param maxSalary  inclusive upper salary bound
+     * @param namePrefix case sensitive prefix of the employee name
+     * @param after      cursor of the previous page (nextCursor), omitted for the
+     *                   first page
+     * @param limit      page size
+     * @param sort       asc or desc on id
+     * @return ResponseEntity<EmployeePage>
+     */
+    @GetMapping("/employees/search")
+    public ResponseEntity<EmployeePage> searchEmployees(
+            @RequestParam(name = "department", required = false) String department,
+            @RequestParam(name = "minSalary", required = false) Integer minSalary,
+            @RequestParam(name = "maxSalary", required = false) Integer maxSalary,
+            @RequestParam(name = "namePrefix", required = false) String namePrefix,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "" + EmployeeService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(name = "sort", defaultValue = "asc") String sort) {
+        EmployeeSearchCriteria criteria = new EmployeeSearchCriteria(department, minSalary, maxSalary, namePrefix);
+        EmployeePage page = employeeService.searchEmployees(criteria, after, limit, toDirection(sort));
+        AccessLogFilter.setRowCount(page.getContent().size());
+        return ResponseEntity.ok().eTag(EmployeeETags.of(page)).body(page);
+    }
+
+    /**
+     * Search employees by department, salary range and name prefix, one keyset
+     * page at a time, reduced to the requested fields
+     * 
+     * @param fields     comma separated subset of id, name, salary, department
+     *                   and version; the id is always included
+     * @param department exact department
+     * @param minSalary  inclusive lower salary bound
+     * @param maxSalary  inclusive upper salary bound
+     * @param namePrefix case sensitive prefix of the employee name
+     * @param after      cursor of the previous page (nextCursor), omitted for the
+     *                   first page
+     * @param limit      page size
+     * @param sort       asc or desc on id
+     * @return ResponseEntity<EmployeeFieldsPage>
+     */
+    @GetMapping(value = "/employees/search", params = "fields")
+    public ResponseEntity<EmployeeFieldsPage> searchEmployeeFields(@RequestParam(name = "fields") String fields,
+            @RequestParam(name = "department", required = false) String department,
+            @RequestParam(name = "minSalary", required = false) Integer minSalary,
+            @RequestParam(name = "maxSalary", required = false) Integer maxSalary,
+            @RequestParam(name = "namePrefix", required = false) String namePrefix,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "" + EmployeeService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(name = "sort", defaultValue = "asc") String sort) {
+        EmployeeSearchCriteria criteria = new EmployeeSearchCriteria(department, minSalary, maxSalary, namePrefix);
+        EmployeeFieldsPage page = employeeService.searchEmployeeFields(criteria, after, limit, toDirection(sort),
+                EmployeeFields.parse(fields));
+        AccessLogFilter.setRowCount(page.getContent().size());
+        return ResponseEntity.ok().eTag(EmployeeETags.of(page)).body(page);
+    }
+
+    /**
+     * Export all employees as newline delimited JSON. Rows are streamed from the
+     * database straight to the client on an async thread, so the servlet thread is
+     * released and heap usage does not depend on the table size. The export has
+     * its own async timeout, as it runs for as long as the table takes to dump.
+     * 
+     * @param request
+     * @param response
+     * @return WebAsyncTask<Void>
+     */
+    @GetMapping(value = "/employees/export", produces = APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportEmployees(HttpServletRequest request, HttpServletResponse response) {
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        return new WebAsyncTask<>(exportTimeoutMs, () -> {
+            AccessLogFilter.setRowCount(request, employeeService.exportEmployees(response.getOutputStream()));
+            return null;
+        });
     }
 
     /**
-     * Get single employee as per employeeId
+     * Get single employee as per employeeId. The response carries the employee
+     * version as ETag; a matching If-None-Match is answered with 304 and no body.
      * 
      * @param employeeId
+     * @param accept     negotiated format, part of the ETag
      * @return ResponseEntity<Employee>
      */
     @GetMapping("/employees/{employeeId}")
-    public ResponseEntity<Employee> getEmployee(@PathVariable(name = "employeeId") long employeeId) {
-        log.info("Inside getEmployee()");
-        return ResponseEntity.ok(employeeService.getEmployee(employeeId));
+    public ResponseEntity<Employee> getEmployee(@PathVariable(name = "employeeId") long employeeId,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        Employee employee = employeeService.getEmployee(employeeId);
+        return ResponseEntity.ok().eTag(EmployeeETags.of(employee, accept)).body(employee);
 
     }
 
+    /**
+     * Get single employee as per employeeId, reduced to the requested fields. The
+     * ETag is the one of the whole employee.
+     * 
+     * @param employeeId
+     * @param fields     comma separated subset of id, name, salary, department
+     *                   and version; the id is always included
+     * @param accept     negotiated format, part of the ETag
+     * @return ResponseEntity<Map<String, Object>>
+     */
+    @GetMapping(value = "/employees/{employeeId}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getEmployeeFields(
+            @PathVariable(name = "employeeId") long employeeId, @RequestParam(name = "fields") String fields,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<String> selected = EmployeeFields.parse(fields);
+        Employee employee = employeeService.getEmployee(employeeId);
+        return ResponseEntity.ok().eTag(EmployeeETags.of(employee, accept))
+                .body(EmployeeFields.project(employee, selected));
+    }
+
     /**
      * Save employee details
      * 
@@ -55,7 +241,6 @@ public class EmployeeController {
      */
     @PostMapping("/employees")
     public ResponseEntity<String> saveEmployee(@Valid @RequestBody Employee employee) {
-        log.info("Inside saveEmployee()");
         Employee emp = employeeService.saveEmployee(employee);
         return new ResponseEntity<String>("Employee with id: " + emp.getId() + " created successfully!",
                 HttpStatus.CREATED);
@@ -69,23 +254,81 @@ public class EmployeeController {
      */
     @DeleteMapping("/employees/{employeeId}")
     public ResponseEntity<String> deleteEmployee(@PathVariable(name = "employeeId") Long employeeId) {
-        log.info("Inside deleteEmployee()");
         employeeService.deleteEmployee(employeeId);
         return ResponseEntity.ok("Employee with id: " + employeeId + " deleted successfully!");
     }
 
     /**
-     * Updates details of employee as per employeeId
+     * Updates details of employee as per employeeId. With an If-Match header the
+     * update only applies to the version carried by the ETag, otherwise 412 is
+     * returned.
      * 
      * @param employee
      * @param employeeId
+     * @param ifMatch
+     * @param accept     negotiated format, part of the new ETag
      * @return ResponseEntity<String>
      */
     @PutMapping("/employees/{employeeId}")
     public ResponseEntity<String> updateEmployee(@Valid @RequestBody Employee employee,
-            @PathVariable(name = "employeeId") Long employeeId) {
-        log.info("Inside updateEmployee()");
-        employeeService.updateEmployee(employeeId, employee);
-        return ResponseEntity.ok("Employee with id: " + employeeId + " updated successfully!");
+            @PathVariable(name = "employeeId") Long employeeId,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        Long expectedVersion = EmployeeETags.expectedVersion(employeeId, ifMatch);
+        employeeService.updateEmployee(employeeId, employee, expectedVersion);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (expectedVersion != null) {
+            response.eTag(EmployeeETags.of(expectedVersion + 1, accept));
+        }
+        return response.body("Employee with id: " + employeeId + " updated successfully!");
+    }
+
+    /**
+     * Save many employees in one request. Items are validated individually and
+     * errors are reported per item, in which case nothing is saved.
+     * 
+     * @param employees
+     * @return ResponseEntity<BatchResult>
+     */
+    @PostMapping("/employees/batch")
+    public ResponseEntity<BatchResult> saveEmployees(@RequestBody List<Employee> employees) {
+        List<Long> ids = employeeService.saveEmployees(employees);
+        AccessLogFilter.setRowCount(ids.size());
+        return new ResponseEntity<BatchResult>(new BatchResult(ids.size(), ids), HttpStatus.CREATED);
+    }
+
+    /**
+     * Update many employees in one request. Every item must carry the id of an
+     * existing employee; errors are reported per item, in which case nothing is
+     * updated.
+     * 
+     * @param employees
+     * @return ResponseEntity<BatchResult>
+     */
+    @PutMapping("/employees/batch")
+    public ResponseEntity<BatchResult> updateEmployees(@RequestBody List<Employee> employees) {
+        List<Long> ids = employeeService.updateEmployees(employees);
+        AccessLogFilter.setRowCount(ids.size());
+        return ResponseEntity.ok(new BatchResult(ids.size(), ids));
+    }
+
+    /**
+     * Import employees from a CSV document with name, salary and department
+     * columns. Valid rows are imported, invalid ones are reported by line number.
+     * 
+     * @param request
+     * @return ResponseEntity<ImportResult>
+     * @throws IOException
+     */
+    @PostMapping(value = "/employees/import", consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<ImportResult> importEmployees(HttpServletRequest request) throws IOException {
+        ImportResult result = employeeImportService.importStream(request.getInputStream());
+        AccessLogFilter.setRowCount(result.getImported());
+        return ResponseEntity.ok(result);
+    }
+
+    static Sort.Direction toDirection(String sort) {
+        return Sort.Direction.fromOptionalString(sort)
+                .orElseThrow(() -> new InvalidRequestException("sort must be either asc or desc"));
     }
 }
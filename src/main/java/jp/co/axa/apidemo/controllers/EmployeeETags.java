@@ -0,0 +1,142 @@
+package jp.co.axa.apidemo.controllers;
+
+import java.util.List;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import jp.co.axa.apidemo.dto.EmployeeFieldsPage;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.error.VersionMismatchException;
+
+/**
+ * ETags of employee representations. A single employee has a strong ETag, its
+ * optimistic lock version plus the format when not JSON, which If-Match
+ * compares; it is too small to be compressed, and Tomcat does not compress
+ * responses with a strong ETag anyway. Pages are weak ETags, so that their
+ * compressed and identity encodings share them for If-None-Match.
+ */
+final class EmployeeETags {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private static final String SMILE_SUFFIX = "-smile";
+
+    private static final String CBOR_SUFFIX = "-cbor";
+
+    private EmployeeETags() {
+    }
+
+    /**
+     * ETag of a single employee
+     * 
+     * @param employee
+     * @param accept   Accept header of the request, may be null
+     * @return String
+     */
+    static String of(Employee employee, String accept) {
+        return of(employee.getVersion(), accept);
+    }
+
+    /**
+     * ETag of a single employee at the given version
+     * 
+     * @param version
+     * @param accept  Accept header of the request, may be null
+     * @return String
+     */
+    static String of(Long version, String accept) {
+        return "\"" + version + formatSuffix(accept) + "\"";
+    }
+
+    /**
+     * Suffix of the format negotiated for an Accept header, the way the message
+     * converters are ordered: JSON first, then Smile and CBOR
+     */
+    private static String formatSuffix(String accept) {
+        if (accept == null) {
+            return "";
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return "";
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return "";
+            }
+            if (mediaType.isCompatibleWith(SMILE)) {
+                return SMILE_SUFFIX;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return CBOR_SUFFIX;
+            }
+        }
+        return "";
+    }
+
+    /**
+     * ETag of a page of employees, changes whenever an employee of the page is
+     * added, removed or modified
+     * 
+     * @param page
+     * @return String
+     */
+    static String of(EmployeePage page) {
+        long hash = 1;
+        for (Employee employee : page.getContent()) {
+            hash = 31 * hash + employee.getId();
+            hash = 31 * hash + (employee.getVersion() == null ? 0 : employee.getVersion());
+        }
+        hash = 31 * hash + (page.getNextCursor() == null ? 0 : page.getNextCursor().hashCode());
+        return "W/\"p" + page.getContent().size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * ETag of a page of selected employee fields, changes whenever a returned
+     * value changes
+     * 
+     * @param page
+     * @return String
+     */
+    static String of(EmployeeFieldsPage page) {
+        long hash = 31L * page.getContent().hashCode()
+                + (page.getNextCursor() == null ? 0 : page.getNextCursor().hashCode());
+        return "W/\"f" + page.getContent().size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * Version expected by an If-Match header
+     * 
+     * @param employeeId
+     * @param ifMatch    header value, may be null
+     * @return Long, null when any version is acceptable
+     * @throws VersionMismatchException when the header cannot match any version
+     *                                  (weak or foreign ETag)
+     */
+    static Long expectedVersion(Long employeeId, String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        try {
+            if (eTag.length() > 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+                // the version is the same in every format
+                String version = eTag.substring(1, eTag.length() - 1);
+                for (String suffix : new String[] { SMILE_SUFFIX, CBOR_SUFFIX }) {
+                    if (version.endsWith(suffix)) {
+                        version = version.substring(0, version.length() - suffix.length());
+                    }
+                }
+                return Long.valueOf(version);
+            }
+        } catch (NumberFormatException e) {
+            // not one of our version ETags, falls through to the mismatch
+        }
+        throw new VersionMismatchException(employeeId, eTag);
+    }
+}
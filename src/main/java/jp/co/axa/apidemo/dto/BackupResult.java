@@ -0,0 +1,21 @@
+package jp.co.axa.apidemo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Online backup written by the persistent profile
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackupResult {
+
+    // absolute path of the zip file
+    private String file;
+    // size of the zip file
+    private long bytes;
+    // wall clock time of the backup
+    private long elapsedMillis;
+}
@@ -0,0 +1,23 @@
+package jp.co.axa.apidemo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Validation error of a single item of a batch request
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemError {
+
+    // position of the item in the request
+    private int index;
+    // employee id given in the item, if any
+    private Long id;
+    // offending field, null when the error is about the whole item
+    private String field;
+    // reason the item was rejected
+    private String message;
+}
@@ -0,0 +1,21 @@
+package jp.co.axa.apidemo.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a successful batch create or update
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResult {
+
+    // number of employees written
+    private int count;
+    // ids of the written employees, in request order
+    private List<Long> ids;
+}
@@ -0,0 +1,11 @@
+package jp.co.axa.apidemo.dto;
+
+/**
+ * Projection of the per department median salary query
+ */
+public interface DepartmentMedian {
+
+    String getDepartment();
+
+    Double getMedianSalary();
+}
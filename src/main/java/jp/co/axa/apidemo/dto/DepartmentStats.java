@@ -0,0 +1,49 @@
+package jp.co.axa.apidemo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Salary figures of one department, aggregated by the database
+ */
+@Data
+@NoArgsConstructor
+public class DepartmentStats {
+
+    // department name
+    private String department;
+    // number of employees
+    private long headcount;
+    // number of employees with a salary, weighs the mean when merging shards
+    @JsonIgnore
+    private long salaryCount;
+    // sum of salaries
+    private Long totalSalary;
+    // lowest salary
+    private Integer minSalary;
+    // highest salary
+    private Integer maxSalary;
+    // mean salary
+    private Double averageSalary;
+    // median salary, only computed on request
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double medianSalary;
+
+    /**
+     * Constructor used by the JPQL constructor expression of the aggregate
+     * queries
+     */
+    public DepartmentStats(String department, Long headcount, Long salaryCount, Long totalSalary,
+            Integer minSalary, Integer maxSalary, Double averageSalary) {
+        this.department = department;
+        this.headcount = headcount;
+        this.salaryCount = salaryCount;
+        this.totalSalary = totalSalary;
+        this.minSalary = minSalary;
+        this.maxSalary = maxSalary;
+        this.averageSalary = averageSalary;
+    }
+}
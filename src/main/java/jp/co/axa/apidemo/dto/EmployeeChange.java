@@ -0,0 +1,23 @@
+package jp.co.axa.apidemo.dto;
+
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeChangedEvent;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of the employee change feed
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeeChange {
+
+    // position in the feed, also sent as the event id
+    private long sequence;
+    // kind of write
+    private EmployeeChangedEvent.Type type;
+    // state after the write; only the id is set for deletes
+    private Employee employee;
+}
@@ -0,0 +1,23 @@
+package jp.co.axa.apidemo.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One keyset page of employees reduced to the requested fields, along with the
+ * cursor of the following page
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeeFieldsPage {
+
+    // selected fields of the employees of the current page
+    private List<Map<String, Object>> content;
+    // opaque cursor to pass as 'after' for the next page, null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,22 @@
+package jp.co.axa.apidemo.dto;
+
+import java.util.List;
+
+import jp.co.axa.apidemo.entities.Employee;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Employees resolved from a list of ids, along with the ids that do not exist
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeeLookup {
+
+    // found employees, in request order, each id once
+    private List<Employee> employees;
+    // requested ids without an employee, in request order
+    private List<Long> missing;
+}
@@ -0,0 +1,22 @@
+package jp.co.axa.apidemo.dto;
+
+import java.util.List;
+
+import jp.co.axa.apidemo.entities.Employee;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One keyset page of employees along with the cursor of the following page
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeePage {
+
+    // employees of the current page
+    private List<Employee> content;
+    // opaque cursor to pass as 'after' for the next page, null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,23 @@
+package jp.co.axa.apidemo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Optional filters of the employee search, unset filters match everything
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeeSearchCriteria {
+
+    // exact department name
+    private String department;
+    // inclusive lower salary bound
+    private Integer minSalary;
+    // inclusive upper salary bound
+    private Integer maxSalary;
+    // case sensitive employee name prefix
+    private String namePrefix;
+}
@@ -0,0 +1,28 @@
+package jp.co.axa.apidemo.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a CSV import. Valid rows are imported, invalid ones are reported
+ * with their line number as index.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResult {
+
+    // data rows read, header and blank lines excluded
+    private long rows;
+    // employees created
+    private long imported;
+    // rows rejected
+    private long failed;
+    // first rejected rows, index is the line number in the file
+    private List<BatchItemError> errors;
+    // wall clock time of the import
+    private long elapsedMillis;
+}
@@ -1,13 +1,20 @@
 package jp.co.axa.apidemo.entities;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import lombok.Data;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Size;
@@ -17,12 +24,25 @@ import javax.validation.constraints.Size;
  */
 
 @Entity
-@Table(name="EMPLOYEE")
+@Table(name="EMPLOYEE", indexes = {
+        @Index(name = "IDX_EMPLOYEE_DEPARTMENT", columnList = "DEPARTMENT"),
+        @Index(name = "IDX_EMPLOYEE_NAME", columnList = "EMPLOYEE_NAME"),
+        @Index(name = "IDX_EMPLOYEE_SALARY", columnList = "EMPLOYEE_SALARY") })
 @Data
 public class Employee {
 
+    // ids of the initial data in data.sql stay below this
+    public static final long FIRST_GENERATED_ID = 5000000;
+
+    // pooled sequence so that inserts can be sent as JDBC batches, keep
+    // increment_size in line with hibernate.jdbc.batch_size; it starts above the
+    // ids of data.sql, and in sharded mode the id also encodes the shard of the row
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employee_seq")
+    @GenericGenerator(name = "employee_seq", strategy = "jp.co.axa.apidemo.sharding.ShardedSequenceGenerator",
+            parameters = { @Parameter(name = "sequence_name", value = "EMPLOYEE_SEQ"),
+                    @Parameter(name = "initial_value", value = "" + Employee.FIRST_GENERATED_ID),
+                    @Parameter(name = "increment_size", value = "50") })
     private Long id;
 
     @Column(name="EMPLOYEE_NAME")
@@ -39,4 +59,10 @@ public class Employee {
     @Size(min = 3, max = 20)
     private String department;
 
+    // optimistic lock version, surfaced to clients as ETag
+    @Version
+    @Column(name="VERSION")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
 }
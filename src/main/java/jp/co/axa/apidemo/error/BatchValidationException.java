@@ -0,0 +1,27 @@
+package jp.co.axa.apidemo.error;
+
+import java.util.List;
+
+import jp.co.axa.apidemo.dto.BatchItemError;
+
+/**
+ * Custom exception class when one or more items of a batch request are invalid
+ */
+public class BatchValidationException extends RuntimeException {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 1L;
+
+    private final List<BatchItemError> itemErrors;
+
+    public BatchValidationException(List<BatchItemError> itemErrors) {
+        super(itemErrors.size() + " invalid item(s) in batch, nothing was written");
+        this.itemErrors = itemErrors;
+    }
+
+    public List<BatchItemError> getItemErrors() {
+        return itemErrors;
+    }
+}
@@ -1,7 +1,9 @@
 package jp.co.axa.apidemo.error;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -13,6 +15,10 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import jp.co.axa.apidemo.dto.BatchItemError;
+import io.micrometer.core.instrument.Metrics;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
@@ -25,6 +31,8 @@ import lombok.extern.slf4j.Slf4j;
 @ControllerAdvice
 public class DefaultExceptionHandler extends ResponseEntityExceptionHandler {
 
+    public static final String ERROR_COUNTER = "employee.api.errors";
+
     /**
      * This method will handle custom exception - EmployeeNotFound
      * 
@@ -33,12 +41,108 @@ public class DefaultExceptionHandler extends ResponseEntityExceptionHandler {
      */
     @ExceptionHandler(EmployeeNotFoundException.class)
     public final ResponseEntity<ErrorMessage> employeeNotFound(EmployeeNotFoundException employeeNotFoundException) {
-        log.info("Inside employeeNotFound()");
         ErrorMessage errorMessage = new ErrorMessage(employeeNotFoundException.getMessage(), HttpStatus.NOT_FOUND);
-        log.error(errorMessage.getErrorMessage());
+        countError("employeeNotFound", errorMessage);
+        log.debug(errorMessage.getErrorMessage());
+        return new ResponseEntity<ErrorMessage>(errorMessage, errorMessage.getStatus());
+    }
+
+    /**
+     * This method will handle custom exception - DepartmentNotFound
+     * 
+     * @param departmentNotFoundException
+     * @return ResponseEntity<ErrorMessage>
+     */
+    @ExceptionHandler(DepartmentNotFoundException.class)
+    public final ResponseEntity<ErrorMessage> departmentNotFound(
+            DepartmentNotFoundException departmentNotFoundException) {
+        ErrorMessage errorMessage = new ErrorMessage(departmentNotFoundException.getMessage(), HttpStatus.NOT_FOUND);
+        countError("departmentNotFound", errorMessage);
+        log.debug(errorMessage.getErrorMessage());
+        return new ResponseEntity<ErrorMessage>(errorMessage, errorMessage.getStatus());
+    }
+
+    /**
+     * This method will handle custom exception - VersionMismatch
+     * 
+     * @param versionMismatchException
+     * @return ResponseEntity<ErrorMessage>
+     */
+    @ExceptionHandler(VersionMismatchException.class)
+    public final ResponseEntity<ErrorMessage> versionMismatch(VersionMismatchException versionMismatchException) {
+        ErrorMessage errorMessage = new ErrorMessage(versionMismatchException.getMessage(),
+                HttpStatus.PRECONDITION_FAILED);
+        countError("versionMismatch", errorMessage);
+        log.debug(errorMessage.getErrorMessage());
         return new ResponseEntity<ErrorMessage>(errorMessage, errorMessage.getStatus());
     }
 
+    /**
+     * This method will handle custom exception - InvalidRequest
+     * 
+     * @param invalidRequestException
+     * @return ResponseEntity<ErrorMessage>
+     */
+    @ExceptionHandler(InvalidRequestException.class)
+    public final ResponseEntity<ErrorMessage> invalidRequest(InvalidRequestException invalidRequestException) {
+        ErrorMessage errorMessage = new ErrorMessage(invalidRequestException.getMessage(), HttpStatus.BAD_REQUEST);
+        countError("invalidRequest", errorMessage);
+        log.debug(errorMessage.getErrorMessage());
+        return new ResponseEntity<ErrorMessage>(errorMessage, errorMessage.getStatus());
+    }
+
+    /**
+     * This method will handle custom exception - BatchValidation
+     * 
+     * @param batchValidationException
+     * @return ResponseEntity<ErrorMessage>
+     */
+    @ExceptionHandler(BatchValidationException.class)
+    public final ResponseEntity<ErrorMessage> batchValidation(BatchValidationException batchValidationException) {
+        ErrorMessage errorMessage = new ErrorMessage(batchValidationException.getMessage(),
+                HttpStatus.NOT_ACCEPTABLE);
+        countError("batchValidation", errorMessage);
+        errorMessage.setItemErrors(batchValidationException.getItemErrors());
+        log.debug(errorMessage.getErrorMessage());
+        return new ResponseEntity<ErrorMessage>(errorMessage, errorMessage.getStatus());
+    }
+
+    /**
+     * This method will handle a full executor queue of the async API. The client
+     * is asked to retry after a second.
+     * 
+     * @param taskRejectedException
+     * @return ResponseEntity<ErrorMessage>
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public final ResponseEntity<ErrorMessage> serviceUnavailable(TaskRejectedException taskRejectedException) {
+        ErrorMessage errorMessage = new ErrorMessage("Server is busy, please retry later.",
+                HttpStatus.SERVICE_UNAVAILABLE);
+        countError("serviceUnavailable", errorMessage);
+        log.debug(taskRejectedException.getMessage());
+        return ResponseEntity.status(errorMessage.getStatus()).header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorMessage);
+    }
+
+    /**
+     * This method will handle requests shed by the admission control. The client
+     * is asked to retry after the delay carried by the exception.
+     * 
+     * @param serviceOverloadedException
+     * @return ResponseEntity<ErrorMessage>
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public final ResponseEntity<ErrorMessage> serviceOverloaded(
+            ServiceOverloadedException serviceOverloadedException) {
+        ErrorMessage errorMessage = new ErrorMessage(serviceOverloadedException.getMessage(),
+                HttpStatus.SERVICE_UNAVAILABLE);
+        countError("serviceOverloaded", errorMessage);
+        log.debug(errorMessage.getErrorMessage());
+        return ResponseEntity.status(errorMessage.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(serviceOverloadedException.getRetryAfterSeconds()))
+                .body(errorMessage);
+    }
+
     /**
      * This method will handle JSON format exception
      * 
@@ -51,10 +155,10 @@ public class DefaultExceptionHandler extends ResponseEntityExceptionHandler {
     @Override
     protected ResponseEntity<Object> handleHttpMessageNotReadable(HttpMessageNotReadableException ex,
             HttpHeaders headers, HttpStatus status, WebRequest request) {
-        log.info("Inside handleHttpMessageNotReadable()");
         ErrorMessage errorMessage = new ErrorMessage("JSON Parse exception. Details: ".concat(ex.getMessage()),
                 HttpStatus.BAD_REQUEST);
-        log.error(errorMessage.getErrorMessage(), ex);
+        countError("handleHttpMessageNotReadable", errorMessage);
+        log.debug(errorMessage.getErrorMessage(), ex);
         return new ResponseEntity<>(errorMessage, errorMessage.getStatus());
     }
 
@@ -70,12 +174,12 @@ public class DefaultExceptionHandler extends ResponseEntityExceptionHandler {
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex,
             HttpHeaders headers, HttpStatus status, WebRequest request) {
-        log.info("Inside handleMethodArgumentNotValid()");
         String errMsg = ex.getBindingResult().getFieldError().getField().concat("- ")
                 .concat(ex.getBindingResult().getFieldError().getDefaultMessage());
         ErrorMessage errorMessage = new ErrorMessage("Invalid Parameter value. Details: ".concat(errMsg),
                 HttpStatus.NOT_ACCEPTABLE);
-        log.error(errorMessage.getErrorMessage(), ex);
+        countError("handleMethodArgumentNotValid", errorMessage);
+        log.debug(errorMessage.getErrorMessage(), ex);
         return new ResponseEntity<>(errorMessage, errorMessage.getStatus());
     }
 
@@ -91,13 +195,25 @@ public class DefaultExceptionHandler extends ResponseEntityExceptionHandler {
     @Override
     protected ResponseEntity<Object> handleHttpMediaTypeNotSupported(HttpMediaTypeNotSupportedException ex,
             HttpHeaders headers, HttpStatus status, WebRequest request) {
-        log.info("Inside handleHttpMediaTypeNotSupported()");
         ErrorMessage errorMessage = new ErrorMessage("Invalid MediaTyape. Details: ".concat(ex.getMessage()),
                 HttpStatus.NOT_ACCEPTABLE);
-        log.error(errorMessage.getErrorMessage(), ex);
+        countError("handleHttpMediaTypeNotSupported", errorMessage);
+        log.debug(errorMessage.getErrorMessage(), ex);
         return new ResponseEntity<>(errorMessage, errorMessage.getStatus());
     }
 
+    /**
+     * Counts the handled error, per handler and response status
+     * 
+     * @param handler
+     * @param errorMessage
+     */
+    private static void countError(String handler, ErrorMessage errorMessage) {
+        // global registry, so the advice also works where no MeterRegistry bean exists
+        Metrics.counter(ERROR_COUNTER, "handler", handler, "status",
+                String.valueOf(errorMessage.getStatus().value())).increment();
+    }
+
     /**
      * This method will catch all the exceptions other than Custom Exceptions,
      * MediaType not supported, JSON format exceptions
@@ -107,8 +223,8 @@ public class DefaultExceptionHandler extends ResponseEntityExceptionHandler {
      */
     @ExceptionHandler(Exception.class)
     public final ResponseEntity<ErrorMessage> somethingWentWrong(Exception ex) {
-        log.info("Inside somethingWentWrong()");
         ErrorMessage errorMessage = new ErrorMessage(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        countError("somethingWentWrong", errorMessage);
         log.error(errorMessage.getErrorMessage(), ex);
         return new ResponseEntity<ErrorMessage>(errorMessage, errorMessage.getStatus());
     }
@@ -125,6 +241,9 @@ class ErrorMessage {
     private HttpStatus status;
     // timestamp
     private LocalDateTime timestamp;
+    // per item errors of a batch request
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<BatchItemError> itemErrors;
 
     private ErrorMessage() {
         this.timestamp = LocalDateTime.now();
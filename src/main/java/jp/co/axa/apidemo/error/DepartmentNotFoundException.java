@@ -0,0 +1,16 @@
+package jp.co.axa.apidemo.error;
+
+/**
+ * Custom exception class when mentioned department has no employees
+ */
+public class DepartmentNotFoundException extends RuntimeException {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 1L;
+
+    public DepartmentNotFoundException(String department) {
+        super("Could not find department: " + department);
+    }
+}
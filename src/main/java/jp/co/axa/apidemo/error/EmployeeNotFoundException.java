@@ -1,7 +1,9 @@
 package jp.co.axa.apidemo.error;
 
 /**
- * Custom exception class when mentioned employee is not present
+ * Custom exception class when mentioned employee is not present. It is thrown
+ * for every unknown id a client asks for and always handled, so it carries no
+ * stack trace.
  */
 public class EmployeeNotFoundException extends RuntimeException {
 
@@ -11,10 +13,10 @@ public class EmployeeNotFoundException extends RuntimeException {
     private static final long serialVersionUID = 1L;
 
     EmployeeNotFoundException() {
-        super();
+        super(null, null, false, false);
     }
 
     public EmployeeNotFoundException(Long employeeId) {
-        super("Could not find employee with id: " + employeeId);
+        super("Could not find employee with id: " + employeeId, null, false, false);
     }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package jp.co.axa.apidemo.error;
+
+/**
+ * Custom exception class when a request parameter (cursor, limit, sort etc.)
+ * cannot be accepted
+ */
+public class InvalidRequestException extends RuntimeException {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 1L;
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,24 @@
+package jp.co.axa.apidemo.error;
+
+/**
+ * Custom exception class when a request is shed because the concurrency budget
+ * it belongs to is exhausted
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String budget, long retryAfterSeconds) {
+        super("Server is busy (" + budget + " budget exhausted), please retry later.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
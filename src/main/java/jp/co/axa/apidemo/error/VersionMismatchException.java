@@ -0,0 +1,17 @@
+package jp.co.axa.apidemo.error;
+
+/**
+ * Custom exception class when an employee was modified since the version the
+ * client based its change on
+ */
+public class VersionMismatchException extends RuntimeException {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 1L;
+
+    public VersionMismatchException(Long employeeId, String eTag) {
+        super("Employee with id: " + employeeId + " does not match " + eTag + ", it has been modified");
+    }
+}
@@ -0,0 +1,109 @@
+package jp.co.axa.apidemo.logging;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Writes one access log record per request: method, path, status, latency and
+ * the number of rows returned. Successful requests are sampled, errors are
+ * always logged. The logger is routed to an async appender in
+ * logback-spring.xml. Registered by {@link AccessLogConfiguration}.
+ */
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    public static final String ACCESS_LOG = "jp.co.axa.apidemo.access";
+
+    public static final String ROW_COUNT_ATTRIBUTE = AccessLogFilter.class.getName() + ".rows";
+
+    private static final String START_ATTRIBUTE = AccessLogFilter.class.getName() + ".start";
+
+    private static final Logger accessLog = LoggerFactory.getLogger(ACCESS_LOG);
+
+    private final double successSampleRate;
+
+    /**
+     * @param successSampleRate fraction of successful requests that are logged
+     */
+    public AccessLogFilter(double successSampleRate) {
+        this.successSampleRate = successSampleRate;
+    }
+
+    /**
+     * Records the number of rows returned by the current request
+     * 
+     * @param rows
+     */
+    public static void setRowCount(long rows) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(ROW_COUNT_ATTRIBUTE, rows, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * Records the number of rows returned by the given request, for async
+     * processing where no request is bound to the thread
+     * 
+     * @param request
+     * @param rows
+     */
+    public static void setRowCount(ServletRequest request, long rows) {
+        request.setAttribute(ROW_COUNT_ATTRIBUTE, rows);
+    }
+
+    /**
+     * Streamed responses complete on an async dispatch, which is where they get
+     * logged
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            start = System.nanoTime();
+            request.setAttribute(START_ATTRIBUTE, start);
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (!isAsyncStarted(request)) {
+                log(request, response.getStatus(), (Long) start);
+            }
+        }
+    }
+
+    private void log(HttpServletRequest request, int status, long start) {
+        if (!accessLog.isInfoEnabled() || (status < 400 && !sampled())) {
+            return;
+        }
+        long latencyMicros = (System.nanoTime() - start) / 1000;
+        accessLog.info("method={} path={} status={} latencyMicros={} rows={}", request.getMethod(),
+                request.getRequestURI(), status, latencyMicros, rows(request));
+    }
+
+    private static Object rows(HttpServletRequest request) {
+        Object rows = request.getAttribute(ROW_COUNT_ATTRIBUTE);
+        return rows != null ? rows : "-";
+    }
+
+    private boolean sampled() {
+        return successSampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < successSampleRate;
+    }
+}
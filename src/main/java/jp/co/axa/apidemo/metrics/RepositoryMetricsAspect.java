@@ -0,0 +1,43 @@
+package jp.co.axa.apidemo.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every EmployeeRepository call as employee.repository, tagged with the
+ * repository method and the exception thrown (or "none")
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    public static final String TIMER_NAME = "employee.repository";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // this(), not execution(), so the methods inherited from JpaRepository match too
+    @Around("this(jp.co.axa.apidemo.repositories.EmployeeRepository)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(TIMER_NAME)
+                    .description("Time spent in EmployeeRepository calls")
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .register(meterRegistry));
+        }
+    }
+}
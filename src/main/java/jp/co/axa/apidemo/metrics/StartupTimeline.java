@@ -0,0 +1,179 @@
+package jp.co.axa.apidemo.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Startup breakdown relative to the JVM start: the time spent in each phase of
+ * SpringApplication.run(), the slowest bean creations and the time until the
+ * first request was served. Logged once the application is ready and
+ * published as startup.time gauges tagged by phase. It is added to the
+ * application in main(), so tests are not timed.
+ *
+ * With employee.startup.training-run=true the application serves one request
+ * to itself and exits once ready, which is how the CDS archive of the cds
+ * build profile is recorded.
+ */
+@Slf4j
+public class StartupTimeline implements ApplicationListener<ApplicationEvent> {
+
+    public static final String GAUGE_NAME = "startup.time";
+
+    private static final int SLOWEST_BEANS = 5;
+
+    // phase name to its duration, in startup order
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    // bean name to its creation time, dependencies created meanwhile included
+    private final Map<String, Long> beans = new ConcurrentHashMap<>();
+
+    private long lastMark;
+
+    private volatile long readyMillis = -1;
+
+    private volatile long firstRequestMillis = -1;
+
+    private ConfigurableApplicationContext context;
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationStartingEvent) {
+            mark("jvm");
+        } else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+            mark("environment");
+        } else if (event instanceof ApplicationPreparedEvent) {
+            mark("context");
+            context = ((ApplicationPreparedEvent) event).getApplicationContext();
+            context.getBeanFactory().addBeanPostProcessor(new BeanTimer());
+        } else if (event instanceof ApplicationStartedEvent) {
+            mark("refresh");
+        } else if (event instanceof ApplicationReadyEvent) {
+            mark("runners");
+            readyMillis = lastMark;
+            report();
+            if (context.getEnvironment().getProperty("employee.startup.training-run", Boolean.class, false)) {
+                train();
+            }
+        } else if (event instanceof ServletRequestHandledEvent && firstRequestMillis < 0 && readyMillis >= 0) {
+            firstRequestMillis = uptime();
+            log.info("First request served {} ms after JVM start.", firstRequestMillis);
+        }
+    }
+
+    /**
+     * @return duration of each startup phase in ms, in startup order
+     */
+    public Map<String, Long> getPhases() {
+        return Collections.unmodifiableMap(phases);
+    }
+
+    /**
+     * @return ms from JVM start until the application was ready, -1 before
+     */
+    public long getReadyMillis() {
+        return readyMillis;
+    }
+
+    /**
+     * @return ms from JVM start until the first request was served, -1 before
+     */
+    public long getFirstRequestMillis() {
+        return firstRequestMillis;
+    }
+
+    private static long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    private void mark(String phase) {
+        long now = uptime();
+        phases.put(phase, now - lastMark);
+        lastMark = now;
+    }
+
+    private void report() {
+        String slowest = beans.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()).limit(SLOWEST_BEANS)
+                .map(bean -> bean.getKey() + " " + bean.getValue() + " ms").collect(Collectors.joining(", "));
+        log.info("Ready {} ms after JVM start: {}; {} beans created, slowest: {}", readyMillis,
+                phases.entrySet().stream().map(phase -> phase.getKey() + " " + phase.getValue() + " ms")
+                        .collect(Collectors.joining(", ")),
+                beans.size(), slowest);
+        beans.clear();
+        context.getBeanProvider(MeterRegistry.class).ifAvailable(registry -> {
+            phases.keySet().forEach(phase -> TimeGauge
+                    .builder(GAUGE_NAME, phases, TimeUnit.MILLISECONDS, durations -> durations.get(phase))
+                    .description("Time spent in each startup phase").tag("phase", phase).register(registry));
+            TimeGauge.builder(GAUGE_NAME, this, TimeUnit.MILLISECONDS, StartupTimeline::getReadyMillis)
+                    .description("Time from JVM start until the application was ready").tag("phase", "ready")
+                    .register(registry);
+            TimeGauge.builder(GAUGE_NAME, this, TimeUnit.MILLISECONDS,
+                    timeline -> timeline.firstRequestMillis < 0 ? Double.NaN : timeline.firstRequestMillis)
+                    .description("Time from JVM start until the first request was served")
+                    .tag("phase", "first-request").register(registry);
+        });
+    }
+
+    private void train() {
+        String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                + "/api/v1/employees";
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            log.info("Training request to {} answered with {}.", url, connection.getResponseCode());
+            connection.disconnect();
+        } catch (IOException e) {
+            log.warn("Training request to {} failed: {}", url, e.getMessage());
+        }
+        System.exit(SpringApplication.exit(context));
+    }
+
+    /**
+     * Measures bean creations until the application is ready
+     */
+    private final class BeanTimer implements InstantiationAwareBeanPostProcessor {
+
+        private final Map<String, Long> started = new ConcurrentHashMap<>();
+
+        @Override
+        public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
+            if (readyMillis < 0) {
+                started.put(beanName, System.nanoTime());
+            }
+            return null;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+            Long start = started.remove(beanName);
+            if (start != null && readyMillis < 0) {
+                beans.put(beanName, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            return bean;
+        }
+    }
+}
@@ -1,12 +1,201 @@
 package jp.co.axa.apidemo.repositories;
 
+import jp.co.axa.apidemo.dto.DepartmentMedian;
+import jp.co.axa.apidemo.dto.DepartmentStats;
 import jp.co.axa.apidemo.entities.Employee;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
  * JPA repository to In-Memory Employee table
  */
 @Repository
-public interface EmployeeRepository extends JpaRepository<Employee, Long> {
+public interface EmployeeRepository
+        extends JpaRepository<Employee, Long>, JpaSpecificationExecutor<Employee>, EmployeeRepositoryCustom {
+
+    /**
+     * Keyset page in ascending id order, starting right after the given id
+     * 
+     * @param id       exclusive lower bound
+     * @param pageable only the page size is used, offset is always 0
+     * @return List<Employee>
+     */
+    List<Employee> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Keyset page in descending id order, starting right after the given id
+     * 
+     * @param id       exclusive upper bound
+     * @param pageable only the page size is used, offset is always 0
+     * @return List<Employee>
+     */
+    List<Employee> findByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    /**
+     * Streams every employee in id order over an open JDBC cursor. Must be
+     * consumed (and closed) inside a transaction.
+     * 
+     * @return Stream<Employee>
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select e from Employee e order by e.id")
+    Stream<Employee> streamAllOrderById();
+
+    /**
+     * Streams the columns of every employee in id order (id, name, salary,
+     * department, version) over an open JDBC cursor, without managed entities.
+     * Must be consumed (and closed) inside a transaction.
+     * 
+     * @return Stream<Object[]>
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("select e.id, e.name, e.salary, e.department, e.version from Employee e order by e.id")
+    Stream<Object[]> streamAllColumns();
+
+    /**
+     * Streams every employee id over an open JDBC cursor. Must be consumed (and
+     * closed) inside a transaction.
+     * 
+     * @return Stream<Long>
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("select e.id from Employee e")
+    Stream<Long> streamAllIds();
+
+    /**
+     * Ids out of the given ones which are present in the table
+     * 
+     * @param ids
+     * @return List<Long>
+     */
+    @Query("select e.id from Employee e where e.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Updates an employee in a single statement, without loading it first
+     * 
+     * @param id
+     * @param name
+     * @param salary
+     * @param department
+     * @return number of updated rows, 0 when the employee does not exist
+     */
+    @Modifying
+    @Query("update Employee e set e.name = :name, e.salary = :salary, e.department = :department, "
+            + "e.version = e.version + 1 where e.id = :id")
+    int updateById(@Param("id") Long id, @Param("name") String name, @Param("salary") Integer salary,
+            @Param("department") String department);
+
+    /**
+     * Current version of an employee, read back by the transaction of an
+     * unconditional update to learn the version it committed
+     * 
+     * @param id
+     * @return Long, null when the employee does not exist
+     */
+    @Query("select e.version from Employee e where e.id = :id")
+    Long findVersionById(@Param("id") Long id);
+
+    /**
+     * Updates an employee in a single statement only if it still has the given
+     * version
+     * 
+     * @param id
+     * @param version expected current version
+     * @param name
+     * @param salary
+     * @param department
+     * @return number of updated rows, 0 when the employee does not exist or has
+     *         another version
+     */
+    @Modifying
+    @Query("update Employee e set e.name = :name, e.salary = :salary, e.department = :department, "
+            + "e.version = e.version + 1 where e.id = :id and e.version = :version")
+    int updateByIdAndVersion(@Param("id") Long id, @Param("version") Long version, @Param("name") String name,
+            @Param("salary") Integer salary, @Param("department") String department);
+
+    /**
+     * Deletes an employee in a single statement, without loading it first
+     * 
+     * @param id
+     * @return number of deleted rows, 0 when the employee does not exist
+     */
+    @Modifying
+    @Query("delete from Employee e where e.id = :id")
+    int removeById(@Param("id") Long id);
+
+    /**
+     * Headcount and salary aggregates of every department. The salaries are cast
+     * to double before averaging, as H2 averages an INT column to an INT.
+     * 
+     * @return List<DepartmentStats>
+     */
+    @Query("select new jp.co.axa.apidemo.dto.DepartmentStats(e.department, count(e), count(e.salary), sum(e.salary), "
+            + "min(e.salary), max(e.salary), avg(cast(e.salary as double))) from Employee e group by e.department order by e.department")
+    List<DepartmentStats> summarizeDepartments();
+
+    /**
+     * Headcount and salary aggregates of a single department
+     * 
+     * @param department
+     * @return Optional<DepartmentStats>, empty when the department has no
+     *         employees
+     */
+    @Query("select new jp.co.axa.apidemo.dto.DepartmentStats(e.department, count(e), count(e.salary), sum(e.salary), "
+            + "min(e.salary), max(e.salary), avg(cast(e.salary as double))) from Employee e where e.department = :department group by e.department")
+    Optional<DepartmentStats> summarizeDepartment(@Param("department") String department);
+
+    /**
+     * Median salary of every department (H2 MEDIAN aggregate)
+     * 
+     * @return List<DepartmentMedian>
+     */
+    @Query(value = "select DEPARTMENT as department, MEDIAN(CAST(EMPLOYEE_SALARY AS DOUBLE)) as medianSalary "
+            + "from EMPLOYEE group by DEPARTMENT", nativeQuery = true)
+    List<DepartmentMedian> findMedianSalaries();
+
+    /**
+     * Median salary of a single department (H2 MEDIAN aggregate)
+     * 
+     * @param department
+     * @return Double, null when the department has no salaries
+     */
+    @Query(value = "select MEDIAN(CAST(EMPLOYEE_SALARY AS DOUBLE)) from EMPLOYEE where DEPARTMENT = :department",
+            nativeQuery = true)
+    Double findMedianSalary(@Param("department") String department);
+
+    /**
+     * Number of employees per department and salary, used to compute medians
+     * across shards
+     * 
+     * @return List<Object[]> of department, salary and count
+     */
+    @Query("select e.department, e.salary, count(e) from Employee e where e.salary is not null "
+            + "group by e.department, e.salary")
+    List<Object[]> countDepartmentSalaries();
+
+    /**
+     * Number of employees per salary of a single department, used to compute its
+     * median across shards
+     * 
+     * @param department
+     * @return List<Object[]> of salary and count
+     */
+    @Query("select e.salary, count(e) from Employee e where e.department = :department and e.salary is not null "
+            + "group by e.salary")
+    List<Object[]> countSalaries(@Param("department") String department);
 }
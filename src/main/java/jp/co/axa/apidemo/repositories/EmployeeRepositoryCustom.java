@@ -0,0 +1,39 @@
+package jp.co.axa.apidemo.repositories;
+
+import java.util.List;
+
+import javax.persistence.Tuple;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import jp.co.axa.apidemo.entities.Employee;
+
+/**
+ * Custom queries of EmployeeRepository which Spring Data cannot derive
+ */
+public interface EmployeeRepositoryCustom {
+
+    /**
+     * Employees matching the specification, sorted, capped at limit rows. Unlike
+     * the Pageable variants of JpaSpecificationExecutor no count query is issued.
+     * 
+     * @param specification
+     * @param sort
+     * @param limit
+     * @return List<Employee>
+     */
+    List<Employee> findLimited(Specification<Employee> specification, Sort sort, int limit);
+
+    /**
+     * Like findLimited, but selects only the given attributes instead of whole
+     * entities. Tuple elements are aliased with the attribute names.
+     * 
+     * @param specification
+     * @param sort
+     * @param limit
+     * @param fields        Employee attribute names
+     * @return List<Tuple>
+     */
+    List<Tuple> findLimitedFields(Specification<Employee> specification, Sort sort, int limit, List<String> fields);
+}
@@ -0,0 +1,84 @@
+package jp.co.axa.apidemo.repositories;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import jp.co.axa.apidemo.entities.Employee;
+
+/**
+ * Building blocks of dynamic Employee queries. Every method returns null when
+ * its filter is not set, which Specification.where/and simply skip.
+ */
+public final class EmployeeSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private EmployeeSpecifications() {
+    }
+
+    /**
+     * Employees of exactly the given department
+     * 
+     * @param department
+     * @return Specification<Employee>
+     */
+    public static Specification<Employee> departmentEquals(String department) {
+        if (department == null) {
+            return null;
+        }
+        return (root, query, builder) -> builder.equal(root.get("department"), department);
+    }
+
+    /**
+     * Employees whose salary lies within the given bounds, both inclusive and
+     * optional
+     * 
+     * @param minSalary
+     * @param maxSalary
+     * @return Specification<Employee>
+     */
+    public static Specification<Employee> salaryBetween(Integer minSalary, Integer maxSalary) {
+        if (minSalary == null && maxSalary == null) {
+            return null;
+        }
+        if (maxSalary == null) {
+            return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("salary"), minSalary);
+        }
+        if (minSalary == null) {
+            return (root, query, builder) -> builder.lessThanOrEqualTo(root.get("salary"), maxSalary);
+        }
+        return (root, query, builder) -> builder.between(root.get("salary"), minSalary, maxSalary);
+    }
+
+    /**
+     * Employees whose name starts with the given prefix (case sensitive, so that
+     * the name index can be used)
+     * 
+     * @param namePrefix
+     * @return Specification<Employee>
+     */
+    public static Specification<Employee> nameStartsWith(String namePrefix) {
+        if (namePrefix == null || namePrefix.isEmpty()) {
+            return null;
+        }
+        String pattern = namePrefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, builder) -> builder.like(root.get("name"), pattern, LIKE_ESCAPE);
+    }
+
+    /**
+     * Employees past the keyset cursor in the given direction
+     * 
+     * @param id        id of the last employee of the previous page, may be null
+     * @param direction
+     * @return Specification<Employee>
+     */
+    public static Specification<Employee> idAfter(Long id, Sort.Direction direction) {
+        if (id == null) {
+            return null;
+        }
+        if (direction == Sort.Direction.DESC) {
+            return (root, query, builder) -> builder.lessThan(root.get("id"), id);
+        }
+        return (root, query, builder) -> builder.greaterThan(root.get("id"), id);
+    }
+}
@@ -0,0 +1,283 @@
+package jp.co.axa.apidemo.services;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the lines of one segment of a CSV file through memory-mapped windows,
+ * so the file contents never go through the heap. Fields are located in place
+ * and only turned into objects when asked for; numbers are parsed straight
+ * from the mapped bytes. Fields may be quoted ("" escapes a quote) but must
+ * not contain line breaks, which is what allows a file to be split into
+ * segments at any line break. Not thread safe, one reader per segment.
+ */
+final class CsvSegmentReader {
+
+    // bytes mapped at once, a line crossing the end of a window is read again
+    // from the start of the next one
+    private static final long WINDOW_SIZE = 64L << 20;
+
+    private static final int MAX_FIELDS = 64;
+
+    static final int MAX_LINE_LENGTH = 64 << 10;
+
+    private final FileChannel channel;
+
+    private final long end;
+
+    private MappedByteBuffer window;
+
+    // file position of the first byte of the window
+    private long windowStart;
+
+    // window index of the first byte after the current line
+    private int next;
+
+    private int lineFrom;
+
+    private int lineTo;
+
+    private long line;
+
+    private final int[] fieldFrom = new int[MAX_FIELDS];
+
+    private final int[] fieldTo = new int[MAX_FIELDS];
+
+    private final boolean[] fieldQuoted = new boolean[MAX_FIELDS];
+
+    private int fieldCount;
+
+    private byte[] scratch = new byte[256];
+
+    /**
+     * @param channel
+     * @param start   file position of the first line, must follow a line break
+     * @param end     file position right after the last line
+     * @throws IOException
+     */
+    CsvSegmentReader(FileChannel channel, long start, long end) throws IOException {
+        this.channel = channel;
+        this.end = end;
+        map(start);
+    }
+
+    /**
+     * Finds the segment boundaries which split the data part of a file into about
+     * equal segments, each starting right after a line break
+     * 
+     * @param channel
+     * @param start    file position of the first data line
+     * @param end      file size
+     * @param segments wanted number of segments
+     * @return boundaries, the first is start and the last end
+     * @throws IOException
+     */
+    static long[] split(FileChannel channel, long start, long end, int segments) throws IOException {
+        long[] boundaries = new long[segments + 1];
+        boundaries[0] = start;
+        int count = 0;
+        for (int i = 1; i < segments; i++) {
+            long target = Math.max(start + (end - start) * i / segments, boundaries[count]);
+            CsvSegmentReader reader = new CsvSegmentReader(channel, target, end);
+            // the line containing target belongs to the previous segment
+            long boundary = target == start ? start : reader.skipLine();
+            if (boundary > boundaries[count] && boundary < end) {
+                boundaries[++count] = boundary;
+            }
+        }
+        boundaries[++count] = end;
+        long[] result = new long[count + 1];
+        System.arraycopy(boundaries, 0, result, 0, count + 1);
+        return result;
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, end - position));
+        next = 0;
+    }
+
+    /**
+     * @return file position right after the current line
+     */
+    long position() {
+        return windowStart + next;
+    }
+
+    /**
+     * @return number of the current line within the segment, starting at 1
+     */
+    long line() {
+        return line;
+    }
+
+    /**
+     * @return number of fields of the current line
+     */
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    private long skipLine() throws IOException {
+        if (!nextLine()) {
+            return end;
+        }
+        return position();
+    }
+
+    /**
+     * Moves to the next non blank line
+     * 
+     * @return false at the end of the segment
+     * @throws IOException when a line exceeds MAX_LINE_LENGTH
+     */
+    boolean next() throws IOException {
+        while (nextLine()) {
+            if (lineTo > lineFrom) {
+                split();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean nextLine() throws IOException {
+        while (position() < end) {
+            int limit = window.limit();
+            int i = next;
+            while (i < limit && window.get(i) != '\n') {
+                i++;
+            }
+            if (i == limit && windowStart + limit < end) {
+                if (limit - next >= MAX_LINE_LENGTH) {
+                    throw new IOException("Line " + (line + 1) + " is longer than " + MAX_LINE_LENGTH + " bytes");
+                }
+                map(position());
+                continue;
+            }
+            line++;
+            lineFrom = next;
+            lineTo = i > lineFrom && window.get(i - 1) == '\r' ? i - 1 : i;
+            next = i < limit ? i + 1 : i;
+            return true;
+        }
+        return false;
+    }
+
+    private void split() {
+        fieldCount = 0;
+        int i = lineFrom;
+        while (fieldCount < MAX_FIELDS) {
+            int field = fieldCount++;
+            if (i < lineTo && window.get(i) == '"') {
+                int j = i + 1;
+                while (j < lineTo && (window.get(j) != '"' || (j + 1 < lineTo && window.get(j + 1) == '"'))) {
+                    j += window.get(j) == '"' ? 2 : 1;
+                }
+                fieldQuoted[field] = true;
+                fieldFrom[field] = i + 1;
+                fieldTo[field] = Math.min(j, lineTo);
+                i = j;
+                while (i < lineTo && window.get(i) != ',') {
+                    i++;
+                }
+            } else {
+                int j = i;
+                while (j < lineTo && window.get(j) != ',') {
+                    j++;
+                }
+                fieldQuoted[field] = false;
+                fieldFrom[field] = i;
+                fieldTo[field] = j;
+                i = j;
+            }
+            if (i >= lineTo) {
+                return;
+            }
+            // skip the separator
+            i++;
+        }
+    }
+
+    /**
+     * @param field
+     * @return text of the field, surrounding blanks of unquoted fields removed,
+     *         null if the line has no such field
+     */
+    String text(int field) {
+        if (field < 0 || field >= fieldCount) {
+            return null;
+        }
+        int from = fieldFrom[field];
+        int to = fieldTo[field];
+        int length = 0;
+        if (scratch.length < to - from) {
+            scratch = new byte[Math.max(to - from, scratch.length * 2)];
+        }
+        if (fieldQuoted[field]) {
+            for (int i = from; i < to; i++) {
+                byte b = window.get(i);
+                scratch[length++] = b;
+                if (b == '"') {
+                    // "" stands for a single quote
+                    i++;
+                }
+            }
+        } else {
+            while (from < to && window.get(from) == ' ') {
+                from++;
+            }
+            while (to > from && window.get(to - 1) == ' ') {
+                to--;
+            }
+            length = to - from;
+            window.position(from);
+            window.get(scratch, 0, length);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param field
+     * @return the field as integer, null if it is empty or missing
+     * @throws NumberFormatException if the field is not an integer
+     */
+    Integer integer(int field) {
+        if (field < 0 || field >= fieldCount) {
+            return null;
+        }
+        int from = fieldFrom[field];
+        int to = fieldTo[field];
+        while (from < to && window.get(from) == ' ') {
+            from++;
+        }
+        while (to > from && window.get(to - 1) == ' ') {
+            to--;
+        }
+        if (from == to) {
+            return null;
+        }
+        boolean negative = window.get(from) == '-';
+        if (negative || window.get(from) == '+') {
+            from++;
+        }
+        if (from == to || to - from > 10) {
+            throw new NumberFormatException();
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = window.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException();
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException();
+        }
+        return (int) value;
+    }
+}
@@ -0,0 +1,87 @@
+package jp.co.axa.apidemo.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.h2.tools.DeleteDbFiles;
+import org.h2.tools.Restore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jp.co.axa.apidemo.dto.BackupResult;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Online backups of the file based H2 database of the persistent profile, and
+ * the matching restore that runs before the database is opened.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty("employee.backup.dir")
+public class DatabaseBackupService {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${employee.backup.dir}")
+    private String backupDir;
+
+    /**
+     * Writes a consistent snapshot of the database into a new zip file while the
+     * application keeps serving requests
+     * 
+     * @return BackupResult
+     */
+    public BackupResult backup() {
+        long start = System.nanoTime();
+        Path file = Paths.get(backupDir, "employees-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".zip")
+                .toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(file.getParent());
+            jdbcTemplate.execute("BACKUP TO '" + file.toString().replace("'", "''") + "'");
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            log.info("Database backed up to {} in {} ms.", file, elapsedMillis);
+            return new BackupResult(file.toString(), Files.size(file), elapsedMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replaces the database files behind a jdbc:h2:file: url with the content of
+     * a backup. The database must not be open.
+     * 
+     * @param backup zip file written by backup()
+     * @param url    jdbc url of the database
+     */
+    public static void restore(Path backup, String url) {
+        if (!Files.isRegularFile(backup)) {
+            throw new IllegalStateException("Backup " + backup + " does not exist");
+        }
+        Path database = databasePath(url);
+        String directory = database.getParent() == null ? "." : database.getParent().toString();
+        String name = database.getFileName().toString();
+        DeleteDbFiles.execute(directory, name, true);
+        Restore.execute(backup.toString(), directory, name);
+        log.info("Database {} restored from {}.", database, backup);
+    }
+
+    private static Path databasePath(String url) {
+        String prefix = "jdbc:h2:file:";
+        if (url == null || !url.startsWith(prefix)) {
+            throw new IllegalStateException("Only jdbc:h2:file: databases can be restored, not " + url);
+        }
+        int settings = url.indexOf(';');
+        return Paths.get(url.substring(prefix.length(), settings < 0 ? url.length() : settings));
+    }
+}
@@ -0,0 +1,26 @@
+package jp.co.axa.apidemo.services;
+
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Restores the backup named by employee.db.restore-from at startup. It runs as
+ * a bean factory post processor, so before the data source, and with it the
+ * database, is opened.
+ */
+@Configuration
+@ConditionalOnProperty("employee.db.restore-from")
+public class DatabaseRestoreConfiguration {
+
+    @Bean
+    public static BeanFactoryPostProcessor databaseRestore(Environment environment) {
+        return beanFactory -> DatabaseBackupService.restore(
+                Paths.get(environment.getRequiredProperty("employee.db.restore-from")),
+                environment.getRequiredProperty("spring.datasource.url"));
+    }
+}
@@ -0,0 +1,173 @@
+package jp.co.axa.apidemo.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jp.co.axa.apidemo.dto.DepartmentMedian;
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.error.DepartmentNotFoundException;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.sharding.Shards;
+
+/**
+ * Service class which offers department level salary statistics. All figures
+ * are aggregated by the database, or by the read model when it is enabled; no
+ * Employee entity is loaded. In sharded mode every shard aggregates its own
+ * rows and the partial figures are merged.
+ */
+@Service
+public class DepartmentService {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired(required = false)
+    private EmployeeReadModel employeeReadModel;
+
+    @Autowired
+    private Shards shards;
+
+    /**
+     * Statistics of every department
+     * 
+     * @param includeMedian whether to run the additional median query
+     * @return List<DepartmentStats>
+     */
+    public List<DepartmentStats> retrieveDepartmentStats(boolean includeMedian) {
+        if (employeeReadModel != null && employeeReadModel.isReady()) {
+            return employeeReadModel.departmentStats(includeMedian);
+        }
+        if (shards.count() > 1) {
+            return retrieveShardedDepartmentStats(includeMedian);
+        }
+        List<DepartmentStats> stats = employeeRepository.summarizeDepartments();
+        if (includeMedian) {
+            Map<String, Double> medians = employeeRepository.findMedianSalaries().stream()
+                    .filter(median -> median.getMedianSalary() != null)
+                    .collect(Collectors.toMap(DepartmentMedian::getDepartment, DepartmentMedian::getMedianSalary));
+            stats.forEach(departmentStats -> departmentStats
+                    .setMedianSalary(medians.get(departmentStats.getDepartment())));
+        }
+        return stats;
+    }
+
+    /**
+     * Statistics of a single department
+     * 
+     * @param department
+     * @param includeMedian whether to run the additional median query
+     * @return DepartmentStats
+     */
+    public DepartmentStats getDepartmentStats(String department, boolean includeMedian) {
+        if (employeeReadModel != null && employeeReadModel.isReady()) {
+            return employeeReadModel.departmentStats(department, includeMedian)
+                    .orElseThrow(() -> new DepartmentNotFoundException(department));
+        }
+        if (shards.count() > 1) {
+            DepartmentStats stats = merge(shards.onAll(shard -> employeeRepository.summarizeDepartment(department))
+                    .stream().filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList()))
+                    .orElseThrow(() -> new DepartmentNotFoundException(department));
+            if (includeMedian) {
+                Map<Integer, Long> salaries = new TreeMap<>();
+                shards.onAll(shard -> employeeRepository.countSalaries(department))
+                        .forEach(rows -> rows
+                                .forEach(row -> salaries.merge((Integer) row[0], (Long) row[1], Long::sum)));
+                stats.setMedianSalary(median(salaries));
+            }
+            return stats;
+        }
+        DepartmentStats stats = employeeRepository.summarizeDepartment(department)
+                .orElseThrow(() -> new DepartmentNotFoundException(department));
+        if (includeMedian) {
+            stats.setMedianSalary(employeeRepository.findMedianSalary(department));
+        }
+        return stats;
+    }
+
+    private List<DepartmentStats> retrieveShardedDepartmentStats(boolean includeMedian) {
+        Map<String, List<DepartmentStats>> partials = new TreeMap<>();
+        shards.onAll(shard -> employeeRepository.summarizeDepartments()).forEach(shardStats -> shardStats
+                .forEach(stats -> partials.computeIfAbsent(stats.getDepartment(), department -> new ArrayList<>())
+                        .add(stats)));
+        // medians cannot be merged, every shard sends its salary counts instead
+        Map<String, Map<Integer, Long>> salaries = new HashMap<>();
+        if (includeMedian) {
+            shards.onAll(shard -> employeeRepository.countDepartmentSalaries()).forEach(rows -> rows
+                    .forEach(row -> salaries.computeIfAbsent((String) row[0], department -> new TreeMap<>())
+                            .merge((Integer) row[1], (Long) row[2], Long::sum)));
+        }
+        List<DepartmentStats> stats = new ArrayList<>(partials.size());
+        partials.forEach((department, departmentPartials) -> {
+            DepartmentStats merged = merge(departmentPartials).get();
+            if (includeMedian) {
+                merged.setMedianSalary(median(salaries.getOrDefault(department, Collections.emptyMap())));
+            }
+            stats.add(merged);
+        });
+        return stats;
+    }
+
+    /**
+     * Merges the figures of one department computed by several shards. The mean
+     * is the merged total over the summed salary counts of the shards.
+     */
+    private static Optional<DepartmentStats> merge(List<DepartmentStats> partials) {
+        if (partials.isEmpty()) {
+            return Optional.empty();
+        }
+        DepartmentStats merged = new DepartmentStats(partials.get(0).getDepartment(), 0L, 0L, null, null, null, null);
+        for (DepartmentStats partial : partials) {
+            merged.setHeadcount(merged.getHeadcount() + partial.getHeadcount());
+            merged.setSalaryCount(merged.getSalaryCount() + partial.getSalaryCount());
+            if (partial.getTotalSalary() == null) {
+                continue;
+            }
+            merged.setTotalSalary(
+                    merged.getTotalSalary() == null ? partial.getTotalSalary()
+                            : merged.getTotalSalary() + partial.getTotalSalary());
+            merged.setMinSalary(merged.getMinSalary() == null ? partial.getMinSalary()
+                    : Math.min(merged.getMinSalary(), partial.getMinSalary()));
+            merged.setMaxSalary(merged.getMaxSalary() == null ? partial.getMaxSalary()
+                    : Math.max(merged.getMaxSalary(), partial.getMaxSalary()));
+        }
+        if (merged.getSalaryCount() > 0) {
+            merged.setAverageSalary((double) merged.getTotalSalary() / merged.getSalaryCount());
+        }
+        return Optional.of(merged);
+    }
+
+    /**
+     * @param salaries number of employees per salary, in salary order
+     * @return median salary, null without salaries
+     */
+    private static Double median(Map<Integer, Long> salaries) {
+        long count = salaries.values().stream().mapToLong(Long::longValue).sum();
+        if (count == 0) {
+            return null;
+        }
+        // zero based positions of the middle value(s)
+        long lower = (count - 1) / 2;
+        long upper = count / 2;
+        Integer lowerSalary = null;
+        long seen = 0;
+        for (Map.Entry<Integer, Long> entry : salaries.entrySet()) {
+            seen += entry.getValue();
+            if (lowerSalary == null && seen > lower) {
+                lowerSalary = entry.getKey();
+            }
+            if (seen > upper) {
+                return (lowerSalary + (double) entry.getKey()) / 2;
+            }
+        }
+        return lowerSalary.doubleValue();
+    }
+}
@@ -0,0 +1,233 @@
+package jp.co.axa.apidemo.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jp.co.axa.apidemo.dto.EmployeeChange;
+import jp.co.axa.apidemo.entities.Employee;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Feed of committed employee writes for GET /api/v1/employees/changes. Every
+ * changed employee gets the next sequence number and is kept in a bounded ring
+ * buffer, from which subscribers can resume. Writers only append and schedule
+ * delivery; the events are sent to the subscribers by a small pool of feed
+ * threads, one drain at a time per subscriber, and each change is serialized
+ * once however many subscribers receive it. A subscriber that falls further
+ * behind than the buffer holds, or resumes from an unknown sequence, gets a
+ * reset event and is closed, so it has to re-read the employees.
+ */
+@Slf4j
+@Component
+public class EmployeeChangeFeed {
+
+    public static final String RESET_EVENT = "reset";
+
+    @Value("${employee.changes.buffer-size:10000}")
+    private int bufferSize;
+
+    @Value("${employee.changes.max-subscribers:1000}")
+    private int maxSubscribers;
+
+    @Value("${employee.changes.threads:4}")
+    private int threads;
+
+    // events sent to one subscriber before another one gets a turn
+    @Value("${employee.changes.drain-batch:256}")
+    private int drainBatch;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+
+    private Entry[] buffer;
+
+    // sequence of the newest change, 0 before the first one
+    private long lastSequence;
+
+    private TaskExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        buffer = new Entry[bufferSize];
+        ThreadPoolTaskExecutor threadPool = new ThreadPoolTaskExecutor();
+        threadPool.setCorePoolSize(threads);
+        threadPool.setMaxPoolSize(threads);
+        threadPool.setThreadNamePrefix("employee-changes-");
+        threadPool.initialize();
+        executor = threadPool;
+        if (meterRegistry != null) {
+            meterRegistry.ifAvailable(registry -> Gauge.builder("employee.changes.subscribers", subscribers, Set::size)
+                    .description("Open employee change feed subscriptions").register(registry));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        if (executor instanceof ThreadPoolTaskExecutor) {
+            ((ThreadPoolTaskExecutor) executor).shutdown();
+        }
+    }
+
+    /**
+     * Appends a committed write to the feed
+     * 
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        synchronized (this) {
+            for (Employee employee : event.getEmployees()) {
+                lastSequence++;
+                buffer[(int) (lastSequence % buffer.length)] = new Entry(
+                        new EmployeeChange(lastSequence, event.getType(), employee));
+            }
+        }
+        subscribers.forEach(this::schedule);
+    }
+
+    /**
+     * Registers a subscriber
+     * 
+     * @param emitter     stream the changes are sent to
+     * @param lastEventId sequence of the last change the subscriber has seen,
+     *                    null to receive only changes from now on
+     * @return false if the maximum number of subscribers is reached
+     */
+    public boolean subscribe(SseEmitter emitter, Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            return false;
+        }
+        Subscriber subscriber;
+        synchronized (this) {
+            subscriber = new Subscriber(emitter, lastEventId == null ? lastSequence : lastEventId);
+        }
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return true;
+    }
+
+    /**
+     * @return number of open subscriptions
+     */
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            executor.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        List<Entry> entries = new ArrayList<>(drainBatch);
+        boolean reset;
+        long latest;
+        synchronized (this) {
+            latest = lastSequence;
+            long oldest = Math.max(1, lastSequence - buffer.length + 1);
+            reset = subscriber.cursor > lastSequence || subscriber.cursor + 1 < oldest;
+            for (long sequence = subscriber.cursor + 1; !reset && sequence <= lastSequence
+                    && entries.size() < drainBatch; sequence++) {
+                entries.add(buffer[(int) (sequence % buffer.length)]);
+            }
+        }
+        try {
+            if (reset) {
+                subscribers.remove(subscriber);
+                subscriber.emitter.send(SseEmitter.event().name(RESET_EVENT).data(latest));
+                subscriber.emitter.complete();
+                return;
+            }
+            for (Entry entry : entries) {
+                long sequence = entry.change.getSequence();
+                subscriber.emitter.send(SseEmitter.event().id(Long.toString(sequence)).data(json(entry),
+                        MediaType.APPLICATION_JSON));
+                subscriber.cursor = sequence;
+            }
+        } catch (IOException | IllegalStateException e) {
+            // the client went away, the servlet container reports it separately
+            log.debug("Dropping change feed subscriber: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return;
+        }
+        subscriber.draining.set(false);
+        // changes appended after the buffer was read did not schedule a drain
+        // while this one was running
+        boolean behind;
+        synchronized (this) {
+            behind = subscriber.cursor < lastSequence;
+        }
+        if (behind && subscribers.contains(subscriber)) {
+            schedule(subscriber);
+        }
+    }
+
+    private String json(Entry entry) throws JsonProcessingException {
+        String json = entry.json;
+        if (json == null) {
+            // racing feed threads may both serialize, which is harmless
+            json = objectMapper.writeValueAsString(entry.change);
+            entry.json = json;
+        }
+        return json;
+    }
+
+    private static final class Entry {
+
+        private final EmployeeChange change;
+
+        private volatile String json;
+
+        private Entry(EmployeeChange change) {
+            this.change = change;
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        // sequence of the last change sent, only touched by the draining thread
+        private volatile long cursor;
+
+        private Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package jp.co.axa.apidemo.services;
+
+import java.util.List;
+
+import jp.co.axa.apidemo.entities.Employee;
+import lombok.Data;
+
+/**
+ * Published by EmployeeService for every write. Listeners that mirror the
+ * table should receive it after commit (@TransactionalEventListener with
+ * fallbackExecution, as writes outside a transaction have already committed).
+ * The events of concurrent writes may reach them in any order, the versions
+ * tell which state is the newer one.
+ */
+@Data
+public class EmployeeChangedEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    // state after the write, with the version it committed; only the id is set
+    // for deletes
+    private final List<Employee> employees;
+}
@@ -0,0 +1,41 @@
+package jp.co.axa.apidemo.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import jp.co.axa.apidemo.error.InvalidRequestException;
+
+/**
+ * Encodes and decodes the opaque keyset cursor handed out to API clients. The
+ * cursor wraps the id of the last employee of a page.
+ */
+public final class EmployeeCursor {
+
+    private EmployeeCursor() {
+    }
+
+    /**
+     * Encode the last seen employee id as cursor
+     * 
+     * @param employeeId
+     * @return String
+     */
+    public static String encode(Long employeeId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(employeeId.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decode a cursor previously produced by {@link #encode(Long)}
+     * 
+     * @param cursor
+     * @return Long
+     */
+    public static Long decode(String cursor) {
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor: " + cursor);
+        }
+    }
+}
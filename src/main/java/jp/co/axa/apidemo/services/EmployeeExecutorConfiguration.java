@@ -0,0 +1,77 @@
+package jp.co.axa.apidemo.services;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Executors of the application, all bounded and shut down with the context.
+ *
+ * The employeeExecutor runs the JPA work of the async API. It is sized to the
+ * connection pool, since more threads would only wait for a connection; work
+ * beyond the queue capacity is rejected instead of piling up.
+ *
+ * The employeeImportExecutor runs the segments of CSV imports, shared by every
+ * import instead of a pool per request; concurrent imports queue their
+ * segments behind each other.
+ *
+ * As Executor beans they make Boot back off from its applicationTaskExecutor,
+ * which is therefore declared here the way Boot would: Spring MVC runs the
+ * async handlers (streamed exports, Callables) on it, and would otherwise fall
+ * back to a new thread per request.
+ */
+@Configuration
+public class EmployeeExecutorConfiguration {
+
+    public static final String EMPLOYEE_EXECUTOR = "employeeExecutor";
+
+    public static final String EMPLOYEE_IMPORT_EXECUTOR = "employeeImportExecutor";
+
+    @Bean(name = EMPLOYEE_EXECUTOR)
+    @ConditionalOnProperty(name = "employee.async.enabled", havingValue = "true")
+    public ThreadPoolTaskExecutor employeeExecutor(@Value("${employee.async.pool-size:10}") int poolSize,
+            @Value("${employee.async.queue-capacity:1000}") int queueCapacity,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return boundedExecutor(EMPLOYEE_EXECUTOR, "employee-jpa-", poolSize, queueCapacity, meterRegistry);
+    }
+
+    @Bean(name = EMPLOYEE_IMPORT_EXECUTOR)
+    public ThreadPoolTaskExecutor employeeImportExecutor(@Value("${employee.import.threads:0}") int threads,
+            @Value("${employee.import.queue-capacity:100}") int queueCapacity,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return boundedExecutor(EMPLOYEE_IMPORT_EXECUTOR, "employee-import-",
+                threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), queueCapacity, meterRegistry);
+    }
+
+    private static ThreadPoolTaskExecutor boundedExecutor(String name, String threadNamePrefix, int poolSize,
+            int queueCapacity, ObjectProvider<MeterRegistry> meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        meterRegistry.ifAvailable(registry -> new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), name,
+                Tags.empty()).bindTo(registry));
+        return executor;
+    }
+
+    @Lazy
+    @Bean(name = { TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME })
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return builder.build();
+    }
+}
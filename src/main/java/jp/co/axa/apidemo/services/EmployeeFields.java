@@ -0,0 +1,80 @@
+package jp.co.axa.apidemo.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.error.InvalidRequestException;
+
+/**
+ * Sparse fieldsets of the employee read endpoints (fields=id,name). The id is
+ * always selected, since the keyset cursor is derived from it.
+ */
+public final class EmployeeFields {
+
+    // attribute names of Employee, which are also the JSON property names
+    public static final List<String> ALL = Collections
+            .unmodifiableList(Arrays.asList("id", "name", "salary", "department", "version"));
+
+    private EmployeeFields() {
+    }
+
+    /**
+     * Parses a comma separated fields parameter
+     * 
+     * @param fields e.g. "name,salary"
+     * @return requested fields in Employee attribute order, id first
+     * @throws InvalidRequestException for an empty list or an unknown field
+     */
+    public static List<String> parse(String fields) {
+        List<String> requested = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!name.isEmpty() && !ALL.contains(name)) {
+                throw new InvalidRequestException("fields must be a comma separated list of " + ALL);
+            }
+            requested.add(name);
+        }
+        List<String> selected = new ArrayList<>(ALL.size());
+        for (String name : ALL) {
+            if (name.equals("id") || requested.contains(name)) {
+                selected.add(name);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * The selected fields of an employee, in selection order
+     * 
+     * @param employee
+     * @param fields   result of parse()
+     * @return Map<String, Object>
+     */
+    public static Map<String, Object> project(Employee employee, List<String> fields) {
+        Map<String, Object> projection = new LinkedHashMap<>();
+        for (String field : fields) {
+            projection.put(field, value(employee, field));
+        }
+        return projection;
+    }
+
+    private static Object value(Employee employee, String field) {
+        switch (field) {
+        case "id":
+            return employee.getId();
+        case "name":
+            return employee.getName();
+        case "salary":
+            return employee.getSalary();
+        case "department":
+            return employee.getDepartment();
+        default:
+            return employee.getVersion();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package jp.co.axa.apidemo.services;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.sharding.Shards;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compressed bitmap of the existing employee ids, so lookups of unknown ids are
+ * answered without a query. It may hold ids which no longer exist (a rolled
+ * back insert), and ids are only removed once the delete has committed. New
+ * ids are added before the write returns to its caller: batch inserts add them
+ * before the flush of each chunk, a single save right after its commit, so a
+ * concurrent request may briefly miss that id. Until it is built at startup
+ * every id is reported as possibly present.
+ */
+@Slf4j
+@Component
+public class EmployeeIdFilter {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Shards shards;
+
+    @Value("${employee.id-filter.enabled:true}")
+    private boolean enabled = true;
+
+    private final Roaring64NavigableMap ids = new Roaring64NavigableMap();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    /**
+     * Loads every id from the table, of every shard in sharded mode. Ids saved
+     * meanwhile are kept.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+        Roaring64NavigableMap loaded = new Roaring64NavigableMap();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            shards.call(shard, () -> transactionTemplate.execute(status -> {
+                try (Stream<Long> stream = employeeRepository.streamAllIds()) {
+                    stream.forEach(loaded::addLong);
+                }
+                return null;
+            }));
+        }
+        loaded.runOptimize();
+        lock.writeLock().lock();
+        try {
+            ids.or(loaded);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Employee id filter built with {} ids in {} bytes.", loaded.getLongCardinality(),
+                loaded.getLongSizeInBytes());
+    }
+
+    /**
+     * @param id
+     * @return false only if no employee has the given id
+     */
+    public boolean mightContain(long id) {
+        if (!ready) {
+            return true;
+        }
+        lock.readLock().lock();
+        try {
+            return ids.contains(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id generated id of a new employee
+     */
+    public void add(long id) {
+        lock.writeLock().lock();
+        try {
+            ids.addLong(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param newIds generated ids of new employees
+     */
+    public void addAll(Collection<Long> newIds) {
+        lock.writeLock().lock();
+        try {
+            newIds.forEach(ids::addLong);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the id once the current transaction commits, or right away outside
+     * of a transaction
+     * 
+     * @param id of a deleted employee
+     */
+    public void remove(long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    removeNow(id);
+                }
+            });
+        } else {
+            removeNow(id);
+        }
+    }
+
+    private void removeNow(long id) {
+        lock.writeLock().lock();
+        try {
+            ids.removeLong(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
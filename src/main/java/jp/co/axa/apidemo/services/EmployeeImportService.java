@@ -0,0 +1,272 @@
+package jp.co.axa.apidemo.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import jp.co.axa.apidemo.dto.BatchItemError;
+import jp.co.axa.apidemo.dto.ImportResult;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.error.InvalidRequestException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Imports employees from CSV files with a name, salary and department column
+ * (header required, column order free, other columns ignored). The file is
+ * split into one segment per thread of the shared employeeImportExecutor;
+ * each segment is parsed from memory-mapped windows, validated against the
+ * Employee constraints and inserted as JDBC batches. Heap use depends on the
+ * chunk size and the number of threads, not on the file size. Invalid rows are
+ * skipped and reported, valid rows are committed chunk by chunk.
+ */
+@Slf4j
+@Service
+public class EmployeeImportService {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    @Qualifier(EmployeeExecutorConfiguration.EMPLOYEE_IMPORT_EXECUTOR)
+    private AsyncTaskExecutor importExecutor;
+
+    // rows validated and inserted together
+    @Value("${employee.import.chunk-size:500}")
+    private int chunkSize = 500;
+
+    // parallel segments and import threads, 0 for one per processor
+    @Value("${employee.import.threads:0}")
+    private int threads;
+
+    // rejected rows reported in the result
+    @Value("${employee.import.max-errors:1000}")
+    private int maxErrors = 1000;
+
+    // rows between two progress log lines
+    @Value("${employee.import.progress-rows:100000}")
+    private long progressRows = 100000;
+
+    /**
+     * Import a CSV file
+     * 
+     * @param file
+     * @return ImportResult
+     * @throws IOException
+     */
+    public ImportResult importFile(Path file) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            CsvSegmentReader header = new CsvSegmentReader(channel, 0, size);
+            if (!header.next()) {
+                throw new InvalidRequestException("CSV file is empty");
+            }
+            int[] columns = columns(header);
+            int segments = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+            long[] boundaries = CsvSegmentReader.split(channel, header.position(), size, segments);
+
+            AtomicLong progress = new AtomicLong();
+            List<SegmentImport> imports = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.length; i++) {
+                imports.add(new SegmentImport(channel, boundaries[i], boundaries[i + 1], columns, progress));
+            }
+            runAll(imports);
+
+            long rows = 0;
+            long imported = 0;
+            long failed = 0;
+            long lineOffset = header.line();
+            List<BatchItemError> errors = new ArrayList<>();
+            for (SegmentImport segment : imports) {
+                rows += segment.rows;
+                imported += segment.imported;
+                failed += segment.failed;
+                for (BatchItemError error : segment.errors) {
+                    error.setIndex((int) (error.getIndex() + lineOffset));
+                    errors.add(error);
+                }
+                lineOffset += segment.lines;
+            }
+            // segments are in file order, so the first errors of the file come first
+            List<BatchItemError> reported = new ArrayList<>(errors.subList(0, Math.min(maxErrors, errors.size())));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            log.info("Imported {} of {} rows from {} in {} ms, {} rejected.", imported, rows, file, elapsedMillis,
+                    failed);
+            return new ImportResult(rows, imported, failed, reported, elapsedMillis);
+        }
+    }
+
+    /**
+     * Import a CSV document. It is spooled to a temporary file first, which is
+     * then imported like any other file.
+     * 
+     * @param inputStream
+     * @return ImportResult
+     * @throws IOException
+     */
+    public ImportResult importStream(InputStream inputStream) throws IOException {
+        Path file = Files.createTempFile("employee-import-", ".csv");
+        try {
+            Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
+            return importFile(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static int[] columns(CsvSegmentReader header) {
+        int[] columns = { -1, -1, -1 };
+        String[] names = { "name", "salary", "department" };
+        for (int field = 0; field < header.fieldCount(); field++) {
+            // a byte order mark is part of the first header name
+            String text = header.text(field).replace("\uFEFF", "").trim();
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equalsIgnoreCase(text)) {
+                    columns[i] = field;
+                }
+            }
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (columns[i] < 0) {
+                throw new InvalidRequestException("CSV header must contain a " + names[i] + " column");
+            }
+        }
+        return columns;
+    }
+
+    private void runAll(List<SegmentImport> imports) throws IOException {
+        if (imports.size() == 1) {
+            imports.get(0).run();
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (SegmentImport segment : imports) {
+                futures.add(importExecutor.submit(segment::run));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // stops the other segments of a failed import, the executor is shared
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Import of one segment, run by one thread
+     */
+    private class SegmentImport {
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final int[] columns;
+        private final AtomicLong progress;
+
+        private long rows;
+        private long imported;
+        private long failed;
+        private long lines;
+        private final List<BatchItemError> errors = new ArrayList<>();
+
+        SegmentImport(FileChannel channel, long start, long end, int[] columns, AtomicLong progress) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.columns = columns;
+            this.progress = progress;
+        }
+
+        void run() {
+            try {
+                CsvSegmentReader reader = new CsvSegmentReader(channel, start, end);
+                List<Employee> chunk = new ArrayList<>(chunkSize);
+                while (reader.next()) {
+                    rows++;
+                    Employee employee = new Employee();
+                    employee.setName(reader.text(columns[0]));
+                    employee.setDepartment(reader.text(columns[2]));
+                    try {
+                        employee.setSalary(reader.integer(columns[1]));
+                    } catch (NumberFormatException e) {
+                        reject(reader.line(), "salary", "must be an integer");
+                        continue;
+                    }
+                    ConstraintViolation<Employee> violation = firstViolation(employee);
+                    if (violation != null) {
+                        reject(reader.line(), violation.getPropertyPath().toString(), violation.getMessage());
+                        continue;
+                    }
+                    chunk.add(employee);
+                    if (chunk.size() == chunkSize) {
+                        insert(chunk);
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    insert(chunk);
+                }
+                lines = reader.line();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private ConstraintViolation<Employee> firstViolation(Employee employee) {
+            for (ConstraintViolation<Employee> violation : validator.validate(employee)) {
+                return violation;
+            }
+            return null;
+        }
+
+        private void reject(long line, String field, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                // line within the segment, made absolute once every segment is done
+                errors.add(new BatchItemError((int) line, null, field, message));
+            }
+        }
+
+        private void insert(List<Employee> chunk) {
+            imported += employeeService.insertEmployees(chunk).size();
+            long total = progress.addAndGet(chunk.size());
+            if (total / progressRows != (total - chunk.size()) / progressRows) {
+                log.info("Imported {} rows so far.", total);
+            }
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package jp.co.axa.apidemo.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.dto.EmployeeSearchCriteria;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory, column oriented copy of the EMPLOYEE table serving list, search
+ * and department aggregate reads without JPA. Rows are kept in id order in
+ * parallel primitive arrays; departments are dictionary encoded. It is loaded
+ * before the web server starts and then follows the EmployeeChangedEvents of
+ * committed writes, so it only reflects writes made through EmployeeService.
+ * Those events arrive in the order their listener threads get the lock, not in
+ * commit order: an upsert only applies if its version is newer than the stored
+ * one, and deleted ids are remembered so that a late upsert cannot revive them.
+ * Enabled with employee.read-model.enabled; the footprint is exposed as the
+ * employee.read.model.bytes gauge. It is never lazy, as a lazily created bean
+ * would miss afterSingletonsInstantiated and stay unloaded.
+ */
+@Slf4j
+@Lazy(false)
+@Component
+@ConditionalOnProperty(name = "employee.read-model.enabled", havingValue = "true")
+public class EmployeeReadModel implements SmartInitializingSingleton {
+
+    // salaries are nullable
+    private static final int NULL_SALARY = Integer.MIN_VALUE;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[1024];
+
+    private String[] names = new String[1024];
+
+    private int[] salaries = new int[1024];
+
+    private int[] departmentCodes = new int[1024];
+
+    private long[] versions = new long[1024];
+
+    private int size;
+
+    // tombstones, ids come from a sequence and are never reused
+    private final Roaring64NavigableMap deletedIds = new Roaring64NavigableMap();
+
+    // estimated heap used by the name strings
+    private long nameBytes;
+
+    private final List<String> departments = new ArrayList<>();
+
+    private final Map<String, Integer> departmentCodeByName = new HashMap<>();
+
+    private volatile boolean ready;
+
+    /**
+     * Loads every row, once all beans exist and before requests are served
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            transactionTemplate.execute(status -> {
+                try (Stream<Object[]> rows = employeeRepository.streamAllColumns()) {
+                    rows.forEach(row -> upsert((Long) row[0], (String) row[1], (Integer) row[2], (String) row[3],
+                            (Long) row[4]));
+                }
+                return null;
+            });
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder("employee.read.model.bytes", this, EmployeeReadModel::footprintBytes)
+                    .description("Estimated heap used by the employee read model").baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("employee.read.model.rows", this, EmployeeReadModel::size)
+                    .description("Employees in the read model").register(registry);
+        });
+        log.info("Employee read model loaded {} rows in {} ms, about {} bytes.", size(),
+                (System.nanoTime() - start) / 1_000_000, footprintBytes());
+    }
+
+    /**
+     * @return whether the read model is loaded
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Applies a committed write
+     * 
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (Employee employee : event.getEmployees()) {
+                if (event.getType() == EmployeeChangedEvent.Type.DELETED) {
+                    remove(employee.getId());
+                    deletedIds.addLong(employee.getId());
+                } else {
+                    upsert(employee.getId(), employee.getName(), employee.getSalary(), employee.getDepartment(),
+                            employee.getVersion());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of employees
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimated heap footprint: the column arrays at their capacity, the name
+     * strings and the department dictionary
+     * 
+     * @return bytes
+     */
+    public long footprintBytes() {
+        lock.readLock().lock();
+        try {
+            long columns = 5 * 16L + ids.length * (8L + 4 + 4 + 8 + 4);
+            long dictionary = 0;
+            for (String department : departments) {
+                // entry in the list and the map plus the string
+                dictionary += 4 + 48 + stringBytes(department);
+            }
+            return columns + nameBytes + dictionary + deletedIds.getLongSizeInBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One keyset page in id order
+     * 
+     * @param after     exclusive id bound, null to start at the first (or last)
+     *                  employee
+     * @param count     maximum number of employees
+     * @param direction
+     * @return List<Employee>
+     */
+    public List<Employee> page(Long after, int count, Sort.Direction direction) {
+        return search(null, after, count, direction);
+    }
+
+    /**
+     * One keyset page of the employees matching the criteria, in id order
+     * 
+     * @param criteria  filters, null or unset ones are ignored
+     * @param after     exclusive id bound, null to start at the first (or last)
+     *                  employee
+     * @param count     maximum number of employees
+     * @param direction
+     * @return List<Employee>
+     */
+    public List<Employee> search(EmployeeSearchCriteria criteria, Long after, int count, Sort.Direction direction) {
+        List<Employee> employees = new ArrayList<>(Math.min(count, 64));
+        lock.readLock().lock();
+        try {
+            int departmentCode = -1;
+            int minSalary = Integer.MIN_VALUE;
+            int maxSalary = Integer.MAX_VALUE;
+            String namePrefix = null;
+            boolean salaryFilter = false;
+            if (criteria != null) {
+                if (criteria.getDepartment() != null) {
+                    Integer code = departmentCodeByName.get(criteria.getDepartment());
+                    if (code == null) {
+                        return employees;
+                    }
+                    departmentCode = code;
+                }
+                if (criteria.getMinSalary() != null) {
+                    minSalary = criteria.getMinSalary();
+                    salaryFilter = true;
+                }
+                if (criteria.getMaxSalary() != null) {
+                    maxSalary = criteria.getMaxSalary();
+                    salaryFilter = true;
+                }
+                namePrefix = criteria.getNamePrefix();
+            }
+            boolean descending = direction == Sort.Direction.DESC;
+            int index;
+            if (after == null) {
+                index = descending ? size - 1 : 0;
+            } else {
+                int found = Arrays.binarySearch(ids, 0, size, after);
+                int insertion = found >= 0 ? found : -found - 1;
+                index = descending ? insertion - 1 : (found >= 0 ? found + 1 : insertion);
+            }
+            int step = descending ? -1 : 1;
+            for (; index >= 0 && index < size && employees.size() < count; index += step) {
+                if (departmentCode >= 0 && departmentCodes[index] != departmentCode) {
+                    continue;
+                }
+                if (salaryFilter && (salaries[index] == NULL_SALARY || salaries[index] < minSalary
+                        || salaries[index] > maxSalary)) {
+                    continue;
+                }
+                if (namePrefix != null && !names[index].startsWith(namePrefix)) {
+                    continue;
+                }
+                employees.add(toEmployee(index));
+            }
+            return employees;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Statistics of every department, ordered by department name
+     * 
+     * @param includeMedian
+     * @return List<DepartmentStats>
+     */
+    public List<DepartmentStats> departmentStats(boolean includeMedian) {
+        lock.readLock().lock();
+        try {
+            List<DepartmentStats> stats = aggregate(-1, includeMedian);
+            stats.sort((first, second) -> first.getDepartment().compareTo(second.getDepartment()));
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Statistics of a single department
+     * 
+     * @param department
+     * @param includeMedian
+     * @return Optional<DepartmentStats>, empty when the department has no
+     *         employees
+     */
+    public Optional<DepartmentStats> departmentStats(String department, boolean includeMedian) {
+        lock.readLock().lock();
+        try {
+            Integer code = departmentCodeByName.get(department);
+            if (code == null) {
+                return Optional.empty();
+            }
+            List<DepartmentStats> stats = aggregate(code, includeMedian);
+            return stats.isEmpty() ? Optional.empty() : Optional.of(stats.get(0));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Aggregates like the database does: headcount counts every row, the salary
+     * figures skip null salaries
+     */
+    private List<DepartmentStats> aggregate(int onlyCode, boolean includeMedian) {
+        int codes = departments.size();
+        long[] headcounts = new long[codes];
+        long[] salaryCounts = new long[codes];
+        long[] totals = new long[codes];
+        int[] mins = new int[codes];
+        int[] maxs = new int[codes];
+        Arrays.fill(mins, Integer.MAX_VALUE);
+        Arrays.fill(maxs, Integer.MIN_VALUE);
+        for (int i = 0; i < size; i++) {
+            int code = departmentCodes[i];
+            if (onlyCode >= 0 && code != onlyCode) {
+                continue;
+            }
+            headcounts[code]++;
+            int salary = salaries[i];
+            if (salary != NULL_SALARY) {
+                salaryCounts[code]++;
+                totals[code] += salary;
+                mins[code] = Math.min(mins[code], salary);
+                maxs[code] = Math.max(maxs[code], salary);
+            }
+        }
+        int[][] salariesByCode = includeMedian ? salariesByCode(salaryCounts, onlyCode) : null;
+        List<DepartmentStats> stats = new ArrayList<>();
+        for (int code = 0; code < codes; code++) {
+            if (headcounts[code] == 0) {
+                continue;
+            }
+            boolean hasSalary = salaryCounts[code] > 0;
+            DepartmentStats departmentStats = new DepartmentStats(departments.get(code), headcounts[code],
+                    salaryCounts[code], hasSalary ? totals[code] : null, hasSalary ? mins[code] : null, hasSalary ? maxs[code] : null,
+                    hasSalary ? (double) totals[code] / salaryCounts[code] : null);
+            if (includeMedian && hasSalary) {
+                departmentStats.setMedianSalary(median(salariesByCode[code]));
+            }
+            stats.add(departmentStats);
+        }
+        return stats;
+    }
+
+    private int[][] salariesByCode(long[] salaryCounts, int onlyCode) {
+        int[][] salariesByCode = new int[salaryCounts.length][];
+        int[] filled = new int[salaryCounts.length];
+        for (int code = 0; code < salaryCounts.length; code++) {
+            salariesByCode[code] = new int[(int) salaryCounts[code]];
+        }
+        for (int i = 0; i < size; i++) {
+            int code = departmentCodes[i];
+            if ((onlyCode < 0 || code == onlyCode) && salaries[i] != NULL_SALARY) {
+                salariesByCode[code][filled[code]++] = salaries[i];
+            }
+        }
+        return salariesByCode;
+    }
+
+    private static double median(int[] values) {
+        Arrays.sort(values);
+        int middle = values.length / 2;
+        if (values.length % 2 == 1) {
+            return values[middle];
+        }
+        return (values[middle - 1] + (double) values[middle]) / 2;
+    }
+
+    private Employee toEmployee(int index) {
+        Employee employee = new Employee();
+        employee.setId(ids[index]);
+        employee.setName(names[index]);
+        employee.setSalary(salaries[index] == NULL_SALARY ? null : salaries[index]);
+        employee.setDepartment(departments.get(departmentCodes[index]));
+        employee.setVersion(versions[index]);
+        return employee;
+    }
+
+    private void upsert(long id, String name, Integer salary, String department, long version) {
+        if (deletedIds.contains(id)) {
+            return;
+        }
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            if (version <= versions[index]) {
+                // a write committed before the stored one
+                return;
+            }
+            nameBytes -= stringBytes(names[index]);
+        } else {
+            index = -index - 1;
+            insertAt(index);
+            ids[index] = id;
+        }
+        names[index] = name;
+        nameBytes += stringBytes(name);
+        salaries[index] = salary == null ? NULL_SALARY : salary;
+        departmentCodes[index] = departmentCode(department);
+        versions[index] = version;
+    }
+
+    private void insertAt(int index) {
+        if (size == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            salaries = Arrays.copyOf(salaries, capacity);
+            departmentCodes = Arrays.copyOf(departmentCodes, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+        }
+        // ids come from a sequence, so this is almost always an append
+        int moved = size - index;
+        if (moved > 0) {
+            System.arraycopy(ids, index, ids, index + 1, moved);
+            System.arraycopy(names, index, names, index + 1, moved);
+            System.arraycopy(salaries, index, salaries, index + 1, moved);
+            System.arraycopy(departmentCodes, index, departmentCodes, index + 1, moved);
+            System.arraycopy(versions, index, versions, index + 1, moved);
+        }
+        size++;
+    }
+
+    private void remove(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return;
+        }
+        nameBytes -= stringBytes(names[index]);
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(ids, index + 1, ids, index, moved);
+            System.arraycopy(names, index + 1, names, index, moved);
+            System.arraycopy(salaries, index + 1, salaries, index, moved);
+            System.arraycopy(departmentCodes, index + 1, departmentCodes, index, moved);
+            System.arraycopy(versions, index + 1, versions, index, moved);
+        }
+        size--;
+        names[size] = null;
+    }
+
+    private int departmentCode(String department) {
+        Integer code = departmentCodeByName.get(department);
+        if (code == null) {
+            code = departments.size();
+            departments.add(department);
+            departmentCodeByName.put(department, code);
+        }
+        return code;
+    }
+
+    /**
+     * Heap used by a String on a 64 bit JVM with compressed oops: the String
+     * object and its char array
+     */
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 24 + 16 + 2L * value.length();
+    }
+}
@@ -1,86 +1,638 @@
 package jp.co.axa.apidemo.services;
 
+import jp.co.axa.apidemo.dto.BatchItemError;
+import jp.co.axa.apidemo.dto.EmployeeFieldsPage;
+import jp.co.axa.apidemo.dto.EmployeeLookup;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.EmployeeSearchCriteria;
 import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.error.BatchValidationException;
 import jp.co.axa.apidemo.error.EmployeeNotFoundException;
+import jp.co.axa.apidemo.error.InvalidRequestException;
+import jp.co.axa.apidemo.error.VersionMismatchException;
 import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.repositories.EmployeeSpecifications;
+import jp.co.axa.apidemo.sharding.Shards;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 /**
- * Service class which offers CRUD operations of Employee
+ * Service class which offers CRUD operations of Employee. In sharded mode
+ * reads by id and writes go to the shard of the employee, while list and
+ * search reads query every shard and merge the results by id.
  */
 
 @Slf4j
 @Service
 public class EmployeeService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String EMPLOYEE_CACHE = "employees";
+
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EmployeeIdFilter employeeIdFilter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private Shards shards;
+
+    // optional in-memory mirror serving list and search reads
+    @Autowired(required = false)
+    private EmployeeReadModel employeeReadModel;
+
+    // ids per IN query of a lookup
+    @Value("${employee.lookup.chunk-size:500}")
+    private int lookupChunkSize = 500;
+
+    // largest accepted lookup request
+    @Value("${employee.lookup.max-size:10000}")
+    private int lookupMaxSize = 10000;
+
+    // rows written between two flushes of the export stream
+    @Value("${employee.export.flush-rows:500}")
+    private int exportFlushRows = 500;
+
+    // rows written per transaction by the batch operations
+    @Value("${employee.batch.chunk-size:500}")
+    private int batchChunkSize = 500;
+
+    // largest accepted batch request
+    @Value("${employee.batch.max-size:10000}")
+    private int batchMaxSize = 10000;
+
+    /**
+     * Retrieves one keyset page of employees ordered by id. The query seeks
+     * directly past the cursor, so its cost depends on the page size only and not
+     * on how deep the client has paged. Served by the read model when enabled.
+     * 
+     * @param after     cursor returned with the previous page, null for the first
+     *                  page
+     * @param limit     page size, between 1 and MAX_PAGE_SIZE
+     * @param direction sort direction on id
+     * @return EmployeePage
+     */
+    public EmployeePage retrieveEmployees(String after, int limit, Sort.Direction direction) {
+        checkLimit(limit);
+        if (employeeReadModel != null && employeeReadModel.isReady()) {
+            return toPage(employeeReadModel.page(after == null ? null : EmployeeCursor.decode(after), limit + 1,
+                    direction), limit);
+        }
+        // one extra row tells whether a next page exists without a count query
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<List<Employee>> employees;
+        if (direction == Sort.Direction.DESC) {
+            Long upperBound = after == null ? Long.MAX_VALUE : EmployeeCursor.decode(after);
+            employees = shards.onAll(shard -> employeeRepository.findByIdLessThanOrderByIdDesc(upperBound,
+                    pageRequest));
+        } else {
+            Long lowerBound = after == null ? Long.MIN_VALUE : EmployeeCursor.decode(after);
+            employees = shards.onAll(shard -> employeeRepository.findByIdGreaterThanOrderByIdAsc(lowerBound,
+                    pageRequest));
+        }
+        return toPage(mergeById(employees, Employee::getId, direction, limit + 1), limit);
+    }
+
+    /**
+     * Retrieves one keyset page of the employees matching every given filter,
+     * ordered by id. Filters are combined into a single dynamic query so each of
+     * them can use its column index. Served by the read model when enabled.
+     * 
+     * @param criteria  filters, unset ones are ignored
+     * @param after     cursor returned with the previous page, null for the first
+     *                  page
+     * @param limit     page size, between 1 and MAX_PAGE_SIZE
+     * @param direction sort direction on id
+     * @return EmployeePage
+     */
+    public EmployeePage searchEmployees(EmployeeSearchCriteria criteria, String after, int limit,
+            Sort.Direction direction) {
+        checkLimit(limit);
+        checkCriteria(criteria);
+        if (employeeReadModel != null && employeeReadModel.isReady()) {
+            return toPage(employeeReadModel.search(criteria, after == null ? null : EmployeeCursor.decode(after),
+                    limit + 1, direction), limit);
+        }
+        Specification<Employee> specification = searchSpecification(criteria, after, direction);
+        List<Employee> employees = mergeById(shards.onAll(shard -> employeeRepository.findLimited(specification,
+                Sort.by(direction, "id"), limit + 1)), Employee::getId, direction, limit + 1);
+        return toPage(employees, limit);
+    }
+
+    /**
+     * Like searchEmployees, but only the given fields are selected from the
+     * database and returned, so neither entities are hydrated nor unwanted
+     * columns read. Served by the read model when enabled.
+     * 
+     * @param criteria  filters, unset ones are ignored
+     * @param after     cursor returned with the previous page, null for the first
+     *                  page
+     * @param limit     page size, between 1 and MAX_PAGE_SIZE
+     * @param direction sort direction on id
+     * @param fields    result of EmployeeFields.parse()
+     * @return EmployeeFieldsPage
+     */
+    public EmployeeFieldsPage searchEmployeeFields(EmployeeSearchCriteria criteria, String after, int limit,
+            Sort.Direction direction, List<String> fields) {
+        if (employeeReadModel != null && employeeReadModel.isReady()) {
+            EmployeePage page = searchEmployees(criteria, after, limit, direction);
+            return new EmployeeFieldsPage(page.getContent().stream()
+                    .map(employee -> EmployeeFields.project(employee, fields)).collect(Collectors.toList()),
+                    page.getNextCursor());
+        }
+        checkLimit(limit);
+        checkCriteria(criteria);
+        Specification<Employee> specification = searchSpecification(criteria, after, direction);
+        List<Tuple> tuples = mergeById(shards.onAll(shard -> employeeRepository.findLimitedFields(specification,
+                Sort.by(direction, "id"), limit + 1, fields)), tuple -> (Long) tuple.get("id"), direction, limit + 1);
+        List<Map<String, Object>> content = new ArrayList<>(Math.min(tuples.size(), limit));
+        for (Tuple tuple : tuples.subList(0, Math.min(tuples.size(), limit))) {
+            Map<String, Object> projection = new LinkedHashMap<>();
+            for (String field : fields) {
+                projection.put(field, tuple.get(field));
+            }
+            content.add(projection);
+        }
+        String nextCursor = tuples.size() > limit
+                ? EmployeeCursor.encode((Long) content.get(limit - 1).get("id"))
+                : null;
+        return new EmployeeFieldsPage(content, nextCursor);
+    }
+
+    private static void checkCriteria(EmployeeSearchCriteria criteria) {
+        if (criteria.getMinSalary() != null && criteria.getMaxSalary() != null
+                && criteria.getMinSalary() > criteria.getMaxSalary()) {
+            throw new InvalidRequestException("minSalary must not be greater than maxSalary");
+        }
+    }
+
+    private static Specification<Employee> searchSpecification(EmployeeSearchCriteria criteria, String after,
+            Sort.Direction direction) {
+        return Specification.where(EmployeeSpecifications.departmentEquals(criteria.getDepartment()))
+                .and(EmployeeSpecifications.salaryBetween(criteria.getMinSalary(), criteria.getMaxSalary()))
+                .and(EmployeeSpecifications.nameStartsWith(criteria.getNamePrefix()))
+                .and(EmployeeSpecifications.idAfter(after == null ? null : EmployeeCursor.decode(after), direction));
+    }
+
+    /**
+     * Merges the id ordered results of every shard into the first max rows in id
+     * order
+     */
+    private static <T> List<T> mergeById(List<List<T>> results, Function<T, Long> id, Sort.Direction direction,
+            int max) {
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+        Comparator<T> order = Comparator.comparing(id);
+        List<T> merged = results.stream().flatMap(List::stream)
+                .sorted(direction == Sort.Direction.DESC ? order.reversed() : order).collect(Collectors.toList());
+        return merged.size() > max ? merged.subList(0, max) : merged;
+    }
+
+    private void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Cuts a result fetched with limit + 1 rows down to the page and derives the
+     * next cursor from it
+     */
+    private EmployeePage toPage(List<Employee> employees, int limit) {
+        if (employees.size() <= limit) {
+            return new EmployeePage(employees, null);
+        }
+        List<Employee> content = employees.subList(0, limit);
+        return new EmployeePage(content, EmployeeCursor.encode(content.get(limit - 1).getId()));
+    }
+
     /**
-     * Retrieves all the employees
+     * Writes every employee as newline delimited JSON, one row at a time. Each
+     * entity is detached once written so the persistence context never grows with
+     * the table. A failing write (e.g. the client went away) aborts the export and
+     * closes the underlying cursor. In sharded mode the shards are exported one
+     * after the other, each in its own transaction.
      * 
-     * @return List<Employee>
+     * @param outputStream
+     * @return number of exported employees
+     * @throws IOException
      */
-    public List<Employee> retrieveEmployees() {
-        log.info("Inside retrieveEmployees()");
-        return employeeRepository.findAll();
+    public long exportEmployees(OutputStream outputStream) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Employee.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long[] count = new long[1];
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            // rows are terminated by a newline below, not separated by jackson
+            generator.setRootValueSeparator(null);
+            for (int shard = 0; shard < shards.count(); shard++) {
+                shards.call(shard, () -> transactionTemplate.execute(status -> {
+                    try (Stream<Employee> employees = employeeRepository.streamAllOrderById()) {
+                        Iterator<Employee> iterator = employees.iterator();
+                        while (iterator.hasNext()) {
+                            Employee employee = iterator.next();
+                            writer.writeValue(generator, employee);
+                            generator.writeRaw('\n');
+                            entityManager.detach(employee);
+                            if (++count[0] % exportFlushRows == 0) {
+                                generator.flush();
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                }));
+            }
+            generator.flush();
+        } catch (IOException | UncheckedIOException e) {
+            IOException cause = e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause()
+                    : (IOException) e;
+            log.info("Employee export aborted after {} rows: {}", count[0], cause.getMessage());
+            throw cause;
+        }
+        log.info("Exported {} employees.", count[0]);
+        return count[0];
     }
 
     /**
-     * Retrieve single employee as per employeeId
+     * Retrieve single employee as per employeeId, served from the employee cache
+     * when possible. Ids missing from the id filter are rejected without a query.
      * 
      * @param employeeId
      * @return Employee
      */
+    @Cacheable(cacheNames = EMPLOYEE_CACHE, key = "#employeeId")
     public Employee getEmployee(Long employeeId) {
-        log.info("Inside getEmployee()");
-        Optional<Employee> employeeOptional = employeeRepository.findById(employeeId);
+        if (!employeeIdFilter.mightContain(employeeId)) {
+            throw new EmployeeNotFoundException(employeeId);
+        }
+        Optional<Employee> employeeOptional = shards.call(shards.ofId(employeeId),
+                () -> employeeRepository.findById(employeeId));
         return employeeOptional
                 .orElseThrow(() -> new EmployeeNotFoundException(employeeId));
 
     }
 
+    /**
+     * Retrieve many employees by id. Cached employees are taken from the employee
+     * cache and ids missing from the id filter are reported without a query; the
+     * rest is loaded with one IN query per employee.lookup.chunk-size ids and
+     * shard. Unknown ids are reported instead of failing the request.
+     * 
+     * @param ids
+     * @return EmployeeLookup
+     */
+    public EmployeeLookup lookupEmployees(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new InvalidRequestException("ids must contain at least one id");
+        }
+        if (ids.size() > lookupMaxSize) {
+            throw new InvalidRequestException("ids must not contain more than " + lookupMaxSize + " ids");
+        }
+        if (ids.contains(null)) {
+            throw new InvalidRequestException("ids must not contain null");
+        }
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        Map<Long, Employee> found = new HashMap<>(requested.size() * 2);
+        List<Long> toLoad = new ArrayList<>(requested.size());
+        Cache cache = cacheManager.getCache(EMPLOYEE_CACHE);
+        for (Long id : requested) {
+            Employee cached = cache == null ? null : cache.get(id, Employee.class);
+            if (cached != null) {
+                found.put(id, cached);
+            } else if (employeeIdFilter.mightContain(id)) {
+                toLoad.add(id);
+            }
+        }
+        Map<Integer, List<Long>> toLoadByShard = groupByShard(toLoad, shards::ofId);
+        shards.onAll(shard -> {
+            List<Long> shardIds = toLoadByShard.getOrDefault(shard, Collections.emptyList());
+            List<Employee> loaded = new ArrayList<>(shardIds.size());
+            for (int start = 0; start < shardIds.size(); start += lookupChunkSize) {
+                loaded.addAll(employeeRepository
+                        .findAllById(shardIds.subList(start, Math.min(start + lookupChunkSize, shardIds.size()))));
+            }
+            return loaded;
+        }).forEach(loaded -> loaded.forEach(employee -> found.put(employee.getId(), employee)));
+        List<Employee> employees = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            Employee employee = found.get(id);
+            if (employee == null) {
+                missing.add(id);
+            } else {
+                employees.add(employee);
+            }
+        }
+        return new EmployeeLookup(employees, missing);
+    }
+
     /**
      * Save employee details
      * 
      * @param employee
      * @return Employee
      */
+    @CachePut(cacheNames = EMPLOYEE_CACHE, key = "#result.id")
     public Employee saveEmployee(Employee employee) {
-        log.info("Inside saveEmployee()");
-        return employeeRepository.save(employee);
+        // ids are always generated for new employees
+        employee.setId(null);
+        Employee saved = shards.call(shards.ofDepartment(employee.getDepartment()),
+                () -> employeeRepository.save(employee));
+        employeeIdFilter.add(saved.getId());
+        eventPublisher.publishEvent(
+                new EmployeeChangedEvent(EmployeeChangedEvent.Type.CREATED, Collections.singletonList(saved)));
+        return saved;
     }
 
     /**
-     * Delete employee record as per employeeId
+     * Delete employee record as per employeeId, in a single statement
      * 
      * @param employeeId
      */
+    @Transactional
+    @CacheEvict(cacheNames = EMPLOYEE_CACHE, key = "#employeeId")
     public void deleteEmployee(Long employeeId) {
-        log.info("Inside deleteEmployee()");
-        employeeRepository.delete(getEmployee(employeeId));
-        log.info("Employee details removed successfully.");
+        if (shards.call(shards.ofId(employeeId), () -> employeeRepository.removeById(employeeId)) == 0) {
+            throw new EmployeeNotFoundException(employeeId);
+        }
+        employeeIdFilter.remove(employeeId);
+        Employee deleted = new Employee();
+        deleted.setId(employeeId);
+        eventPublisher.publishEvent(
+                new EmployeeChangedEvent(EmployeeChangedEvent.Type.DELETED, Collections.singletonList(deleted)));
+        log.debug("Employee {} removed successfully.", employeeId);
     }
 
     /**
-     * Update employee details
+     * Update employee details, in a single statement. When an expected version is
+     * given the update only applies if the employee still has that version, which
+     * protects against lost updates.
      * 
      * @param employeeId
      * @param employee
+     * @param expectedVersion version the change is based on, null to update
+     *                        unconditionally
+     */
+    @Transactional
+    @CacheEvict(cacheNames = EMPLOYEE_CACHE, key = "#employeeId")
+    public void updateEmployee(Long employeeId, Employee employee, Long expectedVersion) {
+        // a department change keeps the employee on the shard its id encodes
+        int shard = shards.ofId(employeeId);
+        int updated = shards.call(shard, () -> expectedVersion == null
+                ? employeeRepository.updateById(employeeId, employee.getName(), employee.getSalary(),
+                        employee.getDepartment())
+                : employeeRepository.updateByIdAndVersion(employeeId, expectedVersion, employee.getName(),
+                        employee.getSalary(), employee.getDepartment()));
+        if (updated == 0) {
+            // only the failure path pays for telling a conflict from a missing row
+            if (expectedVersion != null && shards.call(shard, () -> employeeRepository.existsById(employeeId))) {
+                throw new VersionMismatchException(employeeId, "\"" + expectedVersion + "\"");
+            }
+            throw new EmployeeNotFoundException(employeeId);
+        }
+        Employee snapshot = new Employee();
+        snapshot.setId(employeeId);
+        snapshot.setName(employee.getName());
+        snapshot.setSalary(employee.getSalary());
+        snapshot.setDepartment(employee.getDepartment());
+        // the row stays locked until commit, so this is the version the update commits
+        snapshot.setVersion(expectedVersion != null ? expectedVersion + 1
+                : shards.call(shard, () -> employeeRepository.findVersionById(employeeId)));
+        eventPublisher.publishEvent(
+                new EmployeeChangedEvent(EmployeeChangedEvent.Type.UPDATED, Collections.singletonList(snapshot)));
+        log.debug("Employee {} updated successfully.", employeeId);
+    }
+
+    /**
+     * Save many employees at once. Every item is validated before anything is
+     * written; the inserts are then sent as JDBC batches, one transaction per
+     * chunk of employee.batch.chunk-size rows.
+     * 
+     * @param employees
+     * @return ids of the created employees, in request order
      */
-    public void updateEmployee(Long employeeId, Employee employee) {
-        log.info("Inside updateEmployee()");
-        Employee temp = getEmployee(employeeId);
-        temp.setName(employee.getName());
-        temp.setSalary(employee.getSalary());
-        temp.setDepartment(employee.getDepartment());
-        employeeRepository.save(temp);
-        log.info("Employee details updated successfully.");
+    public List<Long> saveEmployees(List<Employee> employees) {
+        validateBatch(employees, false);
+        List<Long> ids = insertEmployees(employees);
+        log.info("{} employees saved successfully.", ids.size());
+        return ids;
+    }
+
+    /**
+     * Inserts employees as JDBC batches, one transaction per chunk of
+     * employee.batch.chunk-size rows of the same shard. The employees are not
+     * validated, callers must have done so.
+     * 
+     * @param employees
+     * @return ids of the created employees, in list order
+     */
+    public List<Long> insertEmployees(List<Employee> employees) {
+        groupByShard(employees, employee -> shards.ofDepartment(employee.getDepartment()))
+                .forEach((shard, shardEmployees) -> {
+                    for (List<Employee> chunk : chunks(shardEmployees)) {
+                        shards.call(shard, () -> transactionTemplate.execute(status -> {
+                            List<Long> ids = new ArrayList<>(chunk.size());
+                            for (Employee employee : chunk) {
+                                // ids are always generated for new employees
+                                employee.setId(null);
+                                entityManager.persist(employee);
+                                ids.add(employee.getId());
+                            }
+                            employeeIdFilter.addAll(ids);
+                            entityManager.flush();
+                            entityManager.clear();
+                            eventPublisher.publishEvent(new EmployeeChangedEvent(EmployeeChangedEvent.Type.CREATED,
+                                    new ArrayList<>(chunk)));
+                            return null;
+                        }));
+                    }
+                });
+        return employees.stream().map(Employee::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Update many employees at once. Every item must carry the id of an existing
+     * employee and is validated before anything is written; each chunk is then
+     * loaded with one IN query and flushed as a JDBC batch of updates in its own
+     * transaction, and evicted from the cache once that transaction commits.
+     * 
+     * @param employees
+     * @return ids of the updated employees, in request order
+     */
+    public List<Long> updateEmployees(List<Employee> employees) {
+        validateBatch(employees, true);
+        groupByShard(employees, employee -> shards.ofId(employee.getId())).forEach((shard, shardEmployees) -> {
+            for (List<Employee> chunk : chunks(shardEmployees)) {
+                shards.call(shard, () -> transactionTemplate.execute(status -> {
+                    Map<Long, Employee> managed = employeeRepository
+                        .findAllById(chunk.stream().map(Employee::getId).collect(Collectors.toList())).stream()
+                        .collect(Collectors.toMap(Employee::getId, employee -> employee));
+                    for (Employee employee : chunk) {
+                        Employee temp = managed.get(employee.getId());
+                        if (temp == null) {
+                            // removed since validation, roll back this chunk
+                            throw new EmployeeNotFoundException(employee.getId());
+                        }
+                        temp.setName(employee.getName());
+                        temp.setSalary(employee.getSalary());
+                        temp.setDepartment(employee.getDepartment());
+                    }
+                    // flushing increments the versions of the managed employees
+                    entityManager.flush();
+                    entityManager.clear();
+                    eventPublisher.publishEvent(new EmployeeChangedEvent(EmployeeChangedEvent.Type.UPDATED,
+                            new ArrayList<>(managed.values())));
+                    return null;
+                }));
+                // the chunk is committed, its cached copies are stale even if a later chunk fails
+                Cache cache = cacheManager.getCache(EMPLOYEE_CACHE);
+                if (cache != null) {
+                    chunk.forEach(employee -> cache.evict(employee.getId()));
+                }
+            }
+        });
+        log.info("{} employees updated successfully.", employees.size());
+        return employees.stream().map(Employee::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Collects the errors of every item of a batch and rejects the whole batch if
+     * there is any
+     * 
+     * @param employees
+     * @param update    whether items must reference existing employees
+     */
+    private void validateBatch(List<Employee> employees, boolean update) {
+        if (employees == null || employees.isEmpty()) {
+            throw new InvalidRequestException("batch must contain at least one employee");
+        }
+        if (employees.size() > batchMaxSize) {
+            throw new InvalidRequestException("batch must not contain more than " + batchMaxSize + " employees");
+        }
+        List<BatchItemError> errors = new ArrayList<>();
+        Map<Long, Integer> indexById = new HashMap<>();
+        for (int i = 0; i < employees.size(); i++) {
+            Employee employee = employees.get(i);
+            if (employee == null) {
+                errors.add(new BatchItemError(i, null, null, "Employee must not be null"));
+                continue;
+            }
+            for (ConstraintViolation<Employee> violation : validator.validate(employee)) {
+                errors.add(new BatchItemError(i, employee.getId(), violation.getPropertyPath().toString(),
+                        violation.getMessage()));
+            }
+            if (update) {
+                if (employee.getId() == null) {
+                    errors.add(new BatchItemError(i, null, "id", "must not be null"));
+                } else if (indexById.putIfAbsent(employee.getId(), i) != null) {
+                    errors.add(new BatchItemError(i, employee.getId(), "id", "duplicate id in batch"));
+                }
+            }
+        }
+        if (update && !indexById.isEmpty()) {
+            Set<Long> existing = new HashSet<>();
+            groupByShard(new ArrayList<>(indexById.keySet()), shards::ofId).forEach((shard, ids) -> {
+                for (int from = 0; from < ids.size(); from += batchChunkSize) {
+                    List<Long> chunk = ids.subList(from, Math.min(from + batchChunkSize, ids.size()));
+                    existing.addAll(shards.call(shard, () -> employeeRepository.findExistingIds(chunk)));
+                }
+            });
+            indexById.forEach((id, index) -> {
+                if (!existing.contains(id)) {
+                    errors.add(new BatchItemError(index, id, "id", new EmployeeNotFoundException(id).getMessage()));
+                }
+            });
+        }
+        if (!errors.isEmpty()) {
+            errors.sort((first, second) -> Integer.compare(first.getIndex(), second.getIndex()));
+            throw new BatchValidationException(errors);
+        }
+    }
+
+    /**
+     * Splits items by shard, keeping their order within each shard
+     */
+    private static <T> Map<Integer, List<T>> groupByShard(List<T> items, ToIntFunction<T> shard) {
+        Map<Integer, List<T>> groups = new TreeMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(shard.applyAsInt(item), key -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    private List<List<Employee>> chunks(List<Employee> employees) {
+        List<List<Employee>> chunks = new ArrayList<>();
+        for (int from = 0; from < employees.size(); from += batchChunkSize) {
+            chunks.add(employees.subList(from, Math.min(from + batchChunkSize, employees.size())));
+        }
+        return chunks;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package jp.co.axa.apidemo.sharding;
+
+/**
+ * Shard the current thread works on. Read by ShardRoutingDataSource when a
+ * connection is opened and by ShardedSequenceGenerator when an id is
+ * generated; set through Shards.call() rather than directly.
+ */
+public final class ShardContextHolder {
+
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    private ShardContextHolder() {
+    }
+
+    /**
+     * @return shard of the current thread, null when none is selected
+     */
+    public static Integer get() {
+        return SHARD.get();
+    }
+
+    /**
+     * @param shard shard of the current thread, null to clear it
+     */
+    public static void set(Integer shard) {
+        if (shard == null) {
+            SHARD.remove();
+        } else {
+            SHARD.set(shard);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package jp.co.axa.apidemo.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out connections of the shard selected in ShardContextHolder, or of the
+ * default shard 0 when none is selected
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContextHolder.get();
+    }
+}
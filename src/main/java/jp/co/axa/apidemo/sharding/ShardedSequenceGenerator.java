@@ -0,0 +1,64 @@
+package jp.co.axa.apidemo.sharding;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Pooled sequence generator encoding the shard of a new row into its id. Every
+ * shard has its own copy of the sequence and draws values v from it; the id is
+ * v * shards + shard, so ids are unique across shards and id % shards tells
+ * where a row lives. With a single shard the ids are the plain sequence values.
+ */
+public class ShardedSequenceGenerator extends SequenceStyleGenerator {
+
+    // hibernate setting holding the number of shards, see ShardingConfiguration
+    public static final String SHARDS_SETTING = "employee.sharding.shards";
+
+    private int shards = 1;
+
+    // one generator per shard, as the pooled optimizer caches sequence values
+    private final List<SequenceStyleGenerator> shardGenerators = new ArrayList<>();
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        super.configure(type, params, serviceRegistry);
+        Object setting = serviceRegistry.getService(ConfigurationService.class).getSettings().get(SHARDS_SETTING);
+        this.shards = setting == null ? 1 : Integer.parseInt(setting.toString());
+        for (int shard = 0; shards > 1 && shard < shards; shard++) {
+            SequenceStyleGenerator shardGenerator = new SequenceStyleGenerator();
+            shardGenerator.configure(type, (Properties) params.clone(), serviceRegistry);
+            shardGenerators.add(shardGenerator);
+        }
+    }
+
+    @Override
+    public void registerExportables(Database database) {
+        super.registerExportables(database);
+        // the sequence is already registered, this prepares the sql of each copy
+        shardGenerators.forEach(shardGenerator -> shardGenerator.registerExportables(database));
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        if (shards == 1) {
+            return super.generate(session, object);
+        }
+        Integer shard = ShardContextHolder.get();
+        if (shard == null) {
+            throw new IllegalStateException("No shard selected for a new row");
+        }
+        long value = ((Number) shardGenerators.get(shard).generate(session, object)).longValue();
+        return value * shards + shard;
+    }
+}
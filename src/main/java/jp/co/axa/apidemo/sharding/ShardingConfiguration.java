@@ -0,0 +1,101 @@
+package jp.co.axa.apidemo.sharding;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sharded mode: one H2 database and connection pool per shard, built from the
+ * employee.sharding.url template ({0} is the shard), behind a single routing
+ * data source. The routing data source is wrapped lazily, so a transaction
+ * only fetches its connection at the first statement and the shard can still
+ * be selected inside a transactional method.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "employee.sharding.enabled", havingValue = "true")
+public class ShardingConfiguration {
+
+    private final List<HikariDataSource> shardDataSources = new ArrayList<>();
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties,
+            @Value("${employee.sharding.shards:2}") int shards,
+            @Value("${employee.sharding.url:jdbc:h2:mem:shard{0}}") String url,
+            @Value("${employee.read-model.enabled:false}") boolean readModelEnabled) {
+        if (readModelEnabled) {
+            // the read model mirrors a single database
+            throw new IllegalStateException("employee.read-model.enabled cannot be combined with sharding");
+        }
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards; shard++) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                    .url(MessageFormat.format(url, shard)).build();
+            dataSource.setPoolName("shard-" + shard);
+            shardDataSources.add(dataSource);
+            targets.put(shard, dataSource);
+        }
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource();
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(targets.get(0));
+        routingDataSource.afterPropertiesSet();
+        log.info("Sharding employees over {} databases.", shards);
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardedIdentifiers(@Value("${employee.sharding.shards:2}") int shards) {
+        return properties -> properties.put(ShardedSequenceGenerator.SHARDS_SETTING, shards);
+    }
+
+    /**
+     * Hibernate only creates the schema on the default shard 0; its DDL is copied
+     * to the other shards once the entity manager factory is up. Shards that
+     * already have the EMPLOYEE table (file databases) are left alone.
+     */
+    @Bean
+    public SmartInitializingSingleton shardSchemaReplicator() {
+        return () -> {
+            List<String> script = new JdbcTemplate(shardDataSources.get(0)).queryForList("SCRIPT NODATA",
+                    String.class);
+            for (HikariDataSource dataSource : shardDataSources.subList(1, shardDataSources.size())) {
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+                Integer tables = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'EMPLOYEE'", Integer.class);
+                if (tables != null && tables > 0) {
+                    continue;
+                }
+                for (String statement : script) {
+                    // the users are defined by the url of each shard
+                    if (!statement.startsWith("CREATE USER")) {
+                        jdbcTemplate.execute(statement);
+                    }
+                }
+            }
+        };
+    }
+
+    @PreDestroy
+    public void close() {
+        shardDataSources.forEach(HikariDataSource::close);
+    }
+}
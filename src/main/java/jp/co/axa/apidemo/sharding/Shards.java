@@ -0,0 +1,143 @@
+package jp.co.axa.apidemo.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Placement of employees on the shards of the sharded mode
+ * (employee.sharding.enabled) and helpers running work against one or every
+ * shard. A new employee goes to the shard of its department, and its id
+ * encodes that shard (id % count) so that reads by id are routed without a
+ * lookup. Without sharding there is a single shard and all work runs inline.
+ */
+@Component
+public class Shards {
+
+    @Value("${employee.sharding.enabled:false}")
+    private boolean enabled;
+
+    @Value("${employee.sharding.shards:2}")
+    private int configuredCount = 2;
+
+    // threads querying the shards other than the caller's in parallel
+    @Value("${employee.sharding.fan-out-threads:8}")
+    private int fanOutThreads = 8;
+
+    private int count = 1;
+
+    private ThreadPoolTaskExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        count = enabled ? configuredCount : 1;
+        if (count < 1) {
+            throw new IllegalStateException("employee.sharding.shards must be at least 1");
+        }
+        if (count > 1) {
+            executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(fanOutThreads);
+            executor.setMaxPoolSize(fanOutThreads);
+            executor.setThreadNamePrefix("employee-shards-");
+            executor.initialize();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return number of shards, 1 without sharding
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @param id employee id
+     * @return shard holding the employee
+     */
+    public int ofId(long id) {
+        return (int) Math.floorMod(id, (long) count);
+    }
+
+    /**
+     * @param department
+     * @return shard new employees of the department are created on
+     */
+    public int ofDepartment(String department) {
+        return department == null ? 0 : Math.floorMod(department.hashCode(), count);
+    }
+
+    /**
+     * Runs work with the given shard selected, restoring the previous selection
+     * afterwards
+     * 
+     * @param shard
+     * @param work
+     * @return result of work
+     */
+    public <T> T call(int shard, Supplier<T> work) {
+        Integer previous = ShardContextHolder.get();
+        ShardContextHolder.set(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContextHolder.set(previous);
+        }
+    }
+
+    /**
+     * Runs work once per shard with that shard selected. Shard 0 runs on the
+     * calling thread and the others in parallel on the fan-out threads; the
+     * first failure is rethrown once every shard is done.
+     * 
+     * @param work receives the shard it runs on
+     * @return results in shard order
+     */
+    public <T> List<T> onAll(IntFunction<T> work) {
+        List<T> results = new ArrayList<>(count);
+        if (count == 1) {
+            results.add(call(0, () -> work.apply(0)));
+            return results;
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(count);
+        for (int shard = 1; shard < count; shard++) {
+            int selected = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> call(selected, () -> work.apply(selected)), executor));
+        }
+        RuntimeException failure = null;
+        try {
+            results.add(call(0, () -> work.apply(0)));
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+}
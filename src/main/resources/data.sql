@@ -1,4 +1,5 @@
-INSERT INTO employee (id, EMPLOYEE_NAME, EMPLOYEE_SALARY, DEPARTMENT) VALUES
-                     (4032932,'Onkar Dhawade', 7000, 'Software Solutions'),
-                     (4032933,'Jenny Kenny', 8000, 'AI Tecnologies'),
-                     (4032934,'Jan On', 6000, 'HR and Finance');
\ No newline at end of file
+-- ids stay below Employee.FIRST_GENERATED_ID, where EMPLOYEE_SEQ starts
+INSERT INTO employee (id, EMPLOYEE_NAME, EMPLOYEE_SALARY, DEPARTMENT, VERSION) VALUES
+                     (4032932,'Onkar Dhawade', 7000, 'Software Solutions', 0),
+                     (4032933,'Jenny Kenny', 8000, 'AI Tecnologies', 0),
+                     (4032934,'Jan On', 6000, 'HR and Finance', 0);
\ No newline at end of file
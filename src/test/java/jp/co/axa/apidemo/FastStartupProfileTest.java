@@ -0,0 +1,62 @@
+package jp.co.axa.apidemo;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jp.co.axa.apidemo.controllers.EmployeeController;
+import jp.co.axa.apidemo.metrics.StartupTimeline;
+import jp.co.axa.apidemo.services.EmployeeReadModel;
+import springfox.documentation.spring.web.plugins.DocumentationPluginsBootstrapper;
+
+public class FastStartupProfileTest {
+
+    /**
+     * Positive test case - the fast-startup profile creates beans on first use,
+     * leaves Swagger out and reports the startup phases and the first request
+     */
+    @Test
+    public void fastStartup() {
+        StartupTimeline timeline = new StartupTimeline();
+        // own database, so closing this context leaves the cached test contexts alone
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ApiDemoApplication.class)
+                .profiles("fast-startup").listeners(timeline)
+                .run("--server.port=0", "--spring.datasource.url=jdbc:h2:mem:fast-startup")) {
+            Assert.assertEquals(0, context.getBeanNamesForType(DocumentationPluginsBootstrapper.class).length);
+            Assert.assertFalse(context.getBeanFactory().containsSingleton("employeeController"));
+            Assert.assertEquals(Arrays.asList("jvm", "environment", "context", "refresh", "runners"),
+                    Arrays.asList(timeline.getPhases().keySet().toArray()));
+            Assert.assertTrue(timeline.getReadyMillis() > 0);
+            Assert.assertEquals(-1, timeline.getFirstRequestMillis());
+
+            new RestTemplate().getForObject("http://localhost:"
+                    + context.getEnvironment().getProperty("local.server.port") + "/api/v1/employees", String.class);
+            Assert.assertNotNull(context.getBean(EmployeeController.class));
+            Assert.assertTrue(timeline.getFirstRequestMillis() >= timeline.getReadyMillis());
+            Assert.assertEquals(timeline.getFirstRequestMillis(),
+                    context.getBean(MeterRegistry.class).get(StartupTimeline.GAUGE_NAME).tag("phase", "first-request")
+                            .timeGauge().value(TimeUnit.MILLISECONDS),
+                    0.001);
+        }
+    }
+
+    /**
+     * Positive test case - the read model is loaded at startup even though
+     * every other bean is created on first use
+     */
+    @Test
+    public void fastStartup_readModel() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ApiDemoApplication.class)
+                .profiles("fast-startup").run("--server.port=0", "--employee.read-model.enabled=true",
+                        "--spring.datasource.url=jdbc:h2:mem:fast-startup-read-model")) {
+            Assert.assertTrue(context.getBeanFactory().containsSingleton("employeeReadModel"));
+            Assert.assertTrue(context.getBean(EmployeeReadModel.class).isReady());
+        }
+    }
+}
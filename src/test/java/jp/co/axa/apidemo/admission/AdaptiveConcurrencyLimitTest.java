@@ -0,0 +1,78 @@
+package jp.co.axa.apidemo.admission;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimitTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Positive test case - requests beyond the limit wait for a released permit,
+     * and are rejected once the queue is full or the wait runs out
+     *
+     * @throws Exception
+     */
+    @Test
+    public void queuesThenRejects() throws Exception {
+        AdaptiveConcurrencyLimit budget = new AdaptiveConcurrencyLimit("test", 2, 1, 4, 1, 2000, 2.0);
+        Assert.assertEquals(AdaptiveConcurrencyLimit.Outcome.ADMITTED, budget.acquire());
+        Assert.assertEquals(AdaptiveConcurrencyLimit.Outcome.ADMITTED, budget.acquire());
+
+        CompletableFuture<AdaptiveConcurrencyLimit.Outcome> waiting = CompletableFuture.supplyAsync(budget::acquire);
+        while (budget.getQueued() == 0) {
+            Thread.sleep(1);
+        }
+        // the queue holds a single request
+        Assert.assertEquals(AdaptiveConcurrencyLimit.Outcome.REJECTED, budget.acquire());
+        budget.release(MILLIS);
+        Assert.assertEquals(AdaptiveConcurrencyLimit.Outcome.QUEUED, waiting.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, budget.getInFlight());
+
+        AdaptiveConcurrencyLimit impatient = new AdaptiveConcurrencyLimit("test", 1, 1, 1, 10, 10, 2.0);
+        impatient.acquire();
+        Assert.assertEquals(AdaptiveConcurrencyLimit.Outcome.REJECTED, impatient.acquire());
+    }
+
+    /**
+     * Positive test case - the limit grows while latency stays flat under load
+     * and shrinks, down to the minimum, once latency climbs
+     */
+    @Test
+    public void adaptsToLatency() {
+        AdaptiveConcurrencyLimit budget = new AdaptiveConcurrencyLimit("test", 10, 2, 40, 0, 0, 2.0);
+        for (int window = 0; window < 5; window++) {
+            runWindow(budget, budget.getLimit(), MILLIS);
+        }
+        int grown = budget.getLimit();
+        Assert.assertTrue(grown > 10);
+        Assert.assertTrue(grown <= 40);
+
+        runWindow(budget, grown, 8 * MILLIS);
+        Assert.assertTrue(budget.getLimit() < grown);
+        for (int window = 0; window < 20; window++) {
+            runWindow(budget, budget.getLimit(), 8 * MILLIS);
+        }
+        Assert.assertEquals(2, budget.getLimit());
+    }
+
+    /**
+     * Runs one window of samples with the given concurrency and latency
+     */
+    private static void runWindow(AdaptiveConcurrencyLimit budget, int concurrency, long latencyNanos) {
+        int samples = Math.max(10, budget.getLimit());
+        while (samples > 0) {
+            int batch = Math.min(concurrency, samples);
+            for (int i = 0; i < batch; i++) {
+                Assert.assertNotEquals(AdaptiveConcurrencyLimit.Outcome.REJECTED, budget.acquire());
+            }
+            for (int i = 0; i < batch; i++) {
+                budget.release(latencyNanos);
+            }
+            samples -= batch;
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package jp.co.axa.apidemo.budget;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import jp.co.axa.apidemo.controllers.EmployeeController;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeService;
+
+/**
+ * Regression guard for the cost of every EmployeeController endpoint against
+ * the real H2 stack: the JDBC statements Hibernate prepares per request must
+ * match the budget exactly, and the bytes allocated per request (all threads,
+ * measured with the ThreadMXBean) must stay within the budget. Budgets are
+ * kept in employee-endpoint-budgets.properties; an N+1 query or an extra
+ * SELECT fails the build, as does a saving that was not recorded.
+ *
+ * Each endpoint is warmed up before the cheapest of a few measured requests is
+ * compared, so JIT compilation and lazy initialization do not count. With
+ * -Dbudget.record=true nothing is asserted and the measured costs are written
+ * to target/employee-endpoint-budgets.properties, with allocation budgets
+ * rounded up from 1.5 times the measurement to absorb JVM differences.
+ *
+ * Tests run by name, so the export and the reads always see the same rows:
+ * the writes that add employees (import, save, update) sort after them.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:budgets", "employee.import.threads=1",
+        "logging.level.jp.co=WARN" })
+@AutoConfigureMockMvc
+public class EmployeeEndpointBudgetTest {
+
+    private static final String BUDGETS = "/employee-endpoint-budgets.properties";
+    private static final boolean RECORD = Boolean.getBoolean("budget.record");
+    private static final Path RECORDED = Paths.get("target/employee-endpoint-budgets.properties");
+
+    private static final int WARMUP = Integer.getInteger("budget.warmup", 200);
+    private static final int MEASURED = 5;
+    private static final int SEED_ROWS = 100;
+    private static final int BATCH_ROWS = 10;
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    private static final Properties budgets = new Properties();
+
+    private static final Map<String, String> recorded = new TreeMap<>();
+
+    private static List<Long> ids;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private int next;
+
+    @BeforeClass
+    public static void loadBudgets() throws IOException {
+        try (InputStream in = EmployeeEndpointBudgetTest.class.getResourceAsStream(BUDGETS)) {
+            budgets.load(in);
+        }
+    }
+
+    @AfterClass
+    public static void writeRecorded() throws IOException {
+        if (!RECORD) {
+            return;
+        }
+        Files.createDirectories(RECORDED.getParent());
+        try (Writer writer = Files.newBufferedWriter(RECORDED, StandardCharsets.ISO_8859_1)) {
+            for (Map.Entry<String, String> budget : recorded.entrySet()) {
+                writer.write(budget.getKey() + "=" + budget.getValue() + "\n");
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Assert.assertTrue("hibernate.generate_statistics must be enabled", statistics.isStatisticsEnabled());
+        if (ids == null) {
+            ids = IntStream.range(0, SEED_ROWS).mapToObj(i -> employeeService.saveEmployee(employee(i)).getId())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Employee employee(int i) {
+        Employee employee = new Employee();
+        employee.setName("Budget Employee " + i);
+        employee.setSalary(1000 + i);
+        employee.setDepartment("budgetDept");
+        return employee;
+    }
+
+    private static String employeeJson(Long id, int i) {
+        return "{" + (id == null ? "" : "\"id\":" + id + ",") + "\"name\":\"Budget Employee " + i
+                + "\",\"salary\":" + (1000 + i) + ",\"department\":\"budgetDept\"}";
+    }
+
+    // a different seeded employee per request
+    private long nextId() {
+        return ids.get(next++ % ids.size());
+    }
+
+    private String nextIds(int count) {
+        return IntStream.range(0, count).mapToObj(i -> String.valueOf(nextId())).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Positive test case - first page of employees
+     *
+     * @throws Exception
+     */
+    @Test
+    public void getEmployees() throws Exception {
+        assertWithinBudget("getEmployees", () -> MockMvcRequestBuilders.get("/api/v1/employees"));
+    }
+
+    /**
+     * Positive test case - first page of employees reduced to some fields
+     *
+     * @throws Exception
+     */
+    @Test
+    public void getEmployeeFields() throws Exception {
+        assertWithinBudget("getEmployeeFields",
+                () -> MockMvcRequestBuilders.get("/api/v1/employees").param("fields", "name,salary"));
+    }
+
+    /**
+     * Positive test case - multi-get of employees by id
+     *
+     * @throws Exception
+     */
+    @Test
+    public void getEmployeesByIds() throws Exception {
+        assertWithinBudget("getEmployeesByIds",
+                () -> MockMvcRequestBuilders.get("/api/v1/employees").param("ids", nextIds(BATCH_ROWS)));
+    }
+
+    /**
+     * Positive test case - multi-get of employees by id in the request body
+     *
+     * @throws Exception
+     */
+    @Test
+    public void lookupEmployees() throws Exception {
+        assertWithinBudget("lookupEmployees", () -> MockMvcRequestBuilders.post("/api/v1/employees/lookup")
+                .contentType(MediaType.APPLICATION_JSON).content("[" + nextIds(BATCH_ROWS) + "]"));
+    }
+
+    /**
+     * Positive test case - first page of an employee search
+     *
+     * @throws Exception
+     */
+    @Test
+    public void searchEmployees() throws Exception {
+        assertWithinBudget("searchEmployees", () -> MockMvcRequestBuilders.get("/api/v1/employees/search")
+                .param("department", "budgetDept").param("minSalary", "1010").param("namePrefix", "Budget"));
+    }
+
+    /**
+     * Positive test case - first page of an employee search reduced to some
+     * fields
+     *
+     * @throws Exception
+     */
+    @Test
+    public void searchEmployeeFields() throws Exception {
+        assertWithinBudget("searchEmployeeFields",
+                () -> MockMvcRequestBuilders.get("/api/v1/employees/search").param("fields", "name")
+                        .param("department", "budgetDept").param("minSalary", "1010"));
+    }
+
+    /**
+     * Positive test case - streamed export of all employees
+     *
+     * @throws Exception
+     */
+    @Test
+    public void exportEmployees() throws Exception {
+        assertWithinBudget("exportEmployees", () -> MockMvcRequestBuilders.get("/api/v1/employees/export"));
+    }
+
+    /**
+     * Positive test case - single employee missing from the employee cache
+     *
+     * @throws Exception
+     */
+    @Test
+    public void getEmployee() throws Exception {
+        assertWithinBudget("getEmployee", () -> {
+            cacheManager.getCache(EmployeeService.EMPLOYEE_CACHE).clear();
+            return MockMvcRequestBuilders.get("/api/v1/employees/{employeeId}", nextId());
+        });
+    }
+
+    /**
+     * Positive test case - single employee served from the employee cache
+     *
+     * @throws Exception
+     */
+    @Test
+    public void getCachedEmployee() throws Exception {
+        long employeeId = nextId();
+        assertWithinBudget("getCachedEmployee",
+                () -> MockMvcRequestBuilders.get("/api/v1/employees/{employeeId}", employeeId));
+    }
+
+    /**
+     * Positive test case - single employee reduced to some fields
+     *
+     * @throws Exception
+     */
+    @Test
+    public void getEmployeeFieldsById() throws Exception {
+        assertWithinBudget("getEmployeeFieldsById", () -> {
+            cacheManager.getCache(EmployeeService.EMPLOYEE_CACHE).clear();
+            return MockMvcRequestBuilders.get("/api/v1/employees/{employeeId}", nextId()).param("fields", "name");
+        });
+    }
+
+    /**
+     * Positive test case - save one employee
+     *
+     * @throws Exception
+     */
+    @Test
+    public void saveEmployee() throws Exception {
+        assertWithinBudget("saveEmployee", () -> MockMvcRequestBuilders.post("/api/v1/employees")
+                .contentType(MediaType.APPLICATION_JSON).content(employeeJson(null, next++)));
+    }
+
+    /**
+     * Positive test case - update one employee
+     *
+     * @throws Exception
+     */
+    @Test
+    public void updateEmployee() throws Exception {
+        assertWithinBudget("updateEmployee", () -> {
+            long employeeId = nextId();
+            return MockMvcRequestBuilders.put("/api/v1/employees/{employeeId}", employeeId)
+                    .contentType(MediaType.APPLICATION_JSON).content(employeeJson(null, next));
+        });
+    }
+
+    /**
+     * Positive test case - delete one employee
+     *
+     * @throws Exception
+     */
+    @Test
+    public void deleteEmployee() throws Exception {
+        assertWithinBudget("deleteEmployee", () -> MockMvcRequestBuilders.delete("/api/v1/employees/{employeeId}",
+                employeeService.saveEmployee(employee(next++)).getId()));
+    }
+
+    /**
+     * Positive test case - save a batch of employees
+     *
+     * @throws Exception
+     */
+    @Test
+    public void saveEmployees() throws Exception {
+        assertWithinBudget("saveEmployees",
+                () -> MockMvcRequestBuilders.post("/api/v1/employees/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content(IntStream.range(0, BATCH_ROWS).mapToObj(i -> employeeJson(null, next++))
+                                .collect(Collectors.joining(",", "[", "]"))));
+    }
+
+    /**
+     * Positive test case - update a batch of employees
+     *
+     * @throws Exception
+     */
+    @Test
+    public void updateEmployees() throws Exception {
+        assertWithinBudget("updateEmployees",
+                () -> MockMvcRequestBuilders.put("/api/v1/employees/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content(IntStream.range(0, BATCH_ROWS).mapToObj(i -> employeeJson(nextId(), next))
+                                .collect(Collectors.joining(",", "[", "]"))));
+    }
+
+    /**
+     * Positive test case - import a CSV document of employees
+     *
+     * @throws Exception
+     */
+    @Test
+    public void importEmployees() throws Exception {
+        assertWithinBudget("importEmployees", () -> {
+            StringBuilder csv = new StringBuilder("name,salary,department\n");
+            for (int i = 0; i < BATCH_ROWS; i++) {
+                csv.append("Budget Employee ").append(next++).append(",1000,budgetDept\n");
+            }
+            return MockMvcRequestBuilders.post("/api/v1/employees/import")
+                    .contentType(EmployeeController.TEXT_CSV_VALUE).content(csv.toString());
+        });
+    }
+
+    /**
+     * Warms the endpoint up, then compares the cheapest of the measured requests
+     * with the budget of the endpoint. The request is built before the
+     * measurement starts.
+     */
+    private void assertWithinBudget(String endpoint, Supplier<RequestBuilder> request) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            perform(request.get());
+        }
+        long statements = Long.MAX_VALUE;
+        long allocatedBytes = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED; i++) {
+            RequestBuilder builder = request.get();
+            statistics.clear();
+            Map<Long, Long> allocatedBefore = allocatedBytesByThread();
+            perform(builder);
+            allocatedBytes = Math.min(allocatedBytes, allocatedBytesSince(allocatedBefore));
+            statements = Math.min(statements, statistics.getPrepareStatementCount());
+        }
+
+        if (RECORD) {
+            recorded.put(endpoint + ".statements", String.valueOf(statements));
+            // rounded up to 10 KB
+            recorded.put(endpoint + ".allocated-bytes", String.valueOf((allocatedBytes * 3 / 2 / 10240 + 1) * 10240));
+            return;
+        }
+        String statementBudget = budgets.getProperty(endpoint + ".statements");
+        String allocationBudget = budgets.getProperty(endpoint + ".allocated-bytes");
+        Assert.assertNotNull("No budget recorded for " + endpoint + " in " + BUDGETS, statementBudget);
+        Assert.assertNotNull("No budget recorded for " + endpoint + " in " + BUDGETS, allocationBudget);
+        Assert.assertEquals(endpoint + " prepared a different number of statements than its budget in " + BUDGETS,
+                Long.parseLong(statementBudget), statements);
+        Assert.assertTrue(endpoint + " allocated " + allocatedBytes + " bytes per request, over its budget of "
+                + allocationBudget + " in " + BUDGETS, allocatedBytes <= Long.parseLong(allocationBudget));
+    }
+
+    private void perform(RequestBuilder builder) throws Exception {
+        MvcResult result = mockMvc.perform(builder).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andReturn();
+        }
+        int status = result.getResponse().getStatus();
+        Assert.assertTrue("Request failed with " + status + ": " + result.getResponse().getContentAsString(),
+                status < 300);
+    }
+
+    private static Map<Long, Long> allocatedBytesByThread() {
+        long[] threadIds = THREADS.getAllThreadIds();
+        long[] allocated = THREADS.getThreadAllocatedBytes(threadIds);
+        Map<Long, Long> byThread = new HashMap<>();
+        for (int i = 0; i < threadIds.length; i++) {
+            if (allocated[i] >= 0) {
+                byThread.put(threadIds[i], allocated[i]);
+            }
+        }
+        return byThread;
+    }
+
+    // threads that ended meanwhile are not counted, threads started meanwhile are
+    private static long allocatedBytesSince(Map<Long, Long> before) {
+        return allocatedBytesByThread().entrySet().stream()
+                .mapToLong(thread -> thread.getValue() - before.getOrDefault(thread.getKey(), 0L)).sum();
+    }
+}
@@ -0,0 +1,155 @@
+package jp.co.axa.apidemo.controllers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.error.EmployeeNotFoundException;
+import jp.co.axa.apidemo.services.EmployeeExecutorConfiguration;
+import jp.co.axa.apidemo.services.EmployeeService;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(value = AsyncEmployeeController.class)
+@Import(EmployeeExecutorConfiguration.class)
+public class AsyncEmployeeControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AsyncEmployeeController asyncEmployeeController;
+
+    @Autowired
+    private RequestMappingHandlerAdapter requestMappingHandlerAdapter;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @MockBean
+    private EmployeeService employeeService;
+
+    private static Employee employee() {
+        Employee employee = new Employee();
+        employee.setId(1L);
+        employee.setName("mockName");
+        employee.setSalary(100);
+        employee.setDepartment("mockDept");
+        employee.setVersion(3L);
+        return employee;
+    }
+
+    private MvcResult performAsync(RequestBuilder rBuilder) throws Exception {
+        MvcResult started = mockMvc.perform(rBuilder).andReturn();
+        Assert.assertTrue(started.getRequest().isAsyncStarted());
+        return mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(started)).andReturn();
+    }
+
+    /**
+     * Positive test case - Spring MVC runs async handlers on Boot's bounded
+     * application task executor, not on a new thread per request nor on the
+     * executor of the JPA work
+     */
+    @Test
+    public void mvcAsyncExecutor() {
+        Object mvcExecutor = ReflectionTestUtils.getField(requestMappingHandlerAdapter, "taskExecutor");
+        Assert.assertSame(
+                applicationContext.getBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME),
+                mvcExecutor);
+        Assert.assertTrue(mvcExecutor instanceof ThreadPoolTaskExecutor);
+        Assert.assertNotSame(applicationContext.getBean(EmployeeExecutorConfiguration.EMPLOYEE_EXECUTOR), mvcExecutor);
+    }
+
+    /**
+     * Positive test case - the employee is loaded on the executor and returned
+     * with its ETag
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployee() throws Exception {
+        Mockito.when(employeeService.getEmployee(anyLong())).thenReturn(employee());
+        MvcResult result = performAsync(MockMvcRequestBuilders.get("/api/v1/async/employees/1"));
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+        Assert.assertEquals("\"3\"", result.getResponse().getHeader(HttpHeaders.ETAG));
+        JSONAssert.assertEquals("{id:1,name:mockName,department:mockDept,salary:100,version:3}",
+                result.getResponse().getContentAsString(), false);
+    }
+
+    /**
+     * Negative test case - exceptions of the async work go through
+     * DefaultExceptionHandler
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployee_employeeNotFound() throws Exception {
+        Mockito.when(employeeService.getEmployee(anyLong())).thenThrow(new EmployeeNotFoundException(11L));
+        MvcResult result = performAsync(MockMvcRequestBuilders.get("/api/v1/async/employees/11"));
+        Assert.assertEquals(HttpStatus.NOT_FOUND.value(), result.getResponse().getStatus());
+        JSONAssert.assertEquals("{\"errorMessage\":\"Could not find employee with id: 11\",\"status\":\"NOT_FOUND\"}",
+                result.getResponse().getContentAsString(), false);
+    }
+
+    /**
+     * Positive test case - update with If-Match answers the next ETag
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void updateEmployee() throws Exception {
+        MvcResult result = performAsync(MockMvcRequestBuilders
+                .put("/api/v1/async/employees/1").header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"mockName\",\"salary\":100,\"department\":\"mockDept\"}"));
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+        Assert.assertEquals("\"4\"", result.getResponse().getHeader(HttpHeaders.ETAG));
+        Mockito.verify(employeeService).updateEmployee(eq(1L), any(), eq(3L));
+    }
+
+    /**
+     * Negative test case - a saturated executor is answered with 503 and
+     * Retry-After
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployee_executorSaturated() throws Exception {
+        Object executor = ReflectionTestUtils.getField(asyncEmployeeController, "employeeExecutor");
+        ThreadPoolTaskExecutor stopped = new ThreadPoolTaskExecutor();
+        stopped.initialize();
+        stopped.shutdown();
+        ReflectionTestUtils.setField(asyncEmployeeController, "employeeExecutor", stopped);
+        try {
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/async/employees/1")).andReturn();
+            Assert.assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), result.getResponse().getStatus());
+            Assert.assertEquals("1", result.getResponse().getHeader(HttpHeaders.RETRY_AFTER));
+            Mockito.verify(employeeService, Mockito.never()).getEmployee(anyLong());
+        } finally {
+            ReflectionTestUtils.setField(asyncEmployeeController, "employeeExecutor", executor);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package jp.co.axa.apidemo.controllers;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.error.DepartmentNotFoundException;
+import jp.co.axa.apidemo.services.DepartmentService;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(value = DepartmentController.class)
+public class DepartmentControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private DepartmentService departmentService;
+
+    private static final DepartmentStats mockStats = new DepartmentStats("mockDept", 2L, 2L, 300L, 100, 200, 150.0);
+
+    /**
+     * Positive test case - return statistics of all departments
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getDepartmentStats() throws Exception {
+        Mockito.when(departmentService.retrieveDepartmentStats(false)).thenReturn(Arrays.asList(mockStats));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/departments/stats");
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        String expectedStr = "[{department:mockDept,headcount:2,totalSalary:300,minSalary:100,maxSalary:200,"
+                + "averageSalary:150.0}]";
+        String actualStr = result.getResponse().getContentAsString();
+        JSONAssert.assertEquals(expectedStr, actualStr, true);
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Positive test case - return statistics of one department with its median
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getDepartmentStats_singleWithMedian() throws Exception {
+        DepartmentStats stats = new DepartmentStats("mockDept", 2L, 2L, 300L, 100, 200, 150.0);
+        stats.setMedianSalary(150.0);
+        Mockito.when(departmentService.getDepartmentStats("mockDept", true)).thenReturn(stats);
+        RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/departments/mockDept/stats?includeMedian=true");
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        String expectedStr = "{department:mockDept,headcount:2,medianSalary:150.0}";
+        String actualStr = result.getResponse().getContentAsString();
+        JSONAssert.assertEquals(expectedStr, actualStr, false);
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Negative test case - department without employees
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getDepartmentStats_departmentNotFound() throws Exception {
+        Mockito.when(departmentService.getDepartmentStats("unknown", false))
+                .thenThrow(new DepartmentNotFoundException("unknown"));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/departments/unknown/stats");
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        String expectedStr = "{\"errorMessage\":\"Could not find department: unknown\",\"status\":\"NOT_FOUND\"}";
+        String actualStr = result.getResponse().getContentAsString();
+        JSONAssert.assertEquals(expectedStr, actualStr, false);
+        Assert.assertEquals(HttpStatus.NOT_FOUND.value(), result.getResponse().getStatus());
+    }
+}
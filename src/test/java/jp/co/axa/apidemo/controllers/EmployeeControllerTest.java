@@ -1,11 +1,20 @@
 package jp.co.axa.apidemo.controllers;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -15,6 +24,8 @@ import org.skyscreamer.jsonassert.JSONAssert;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -23,8 +34,25 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.RequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import jp.co.axa.apidemo.admission.AdaptiveConcurrencyLimit;
+import jp.co.axa.apidemo.admission.AdmissionControl;
+import jp.co.axa.apidemo.dto.BatchItemError;
+import jp.co.axa.apidemo.dto.EmployeeFieldsPage;
+import jp.co.axa.apidemo.dto.EmployeeLookup;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.EmployeeSearchCriteria;
+import jp.co.axa.apidemo.dto.ImportResult;
 import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.error.BatchValidationException;
 import jp.co.axa.apidemo.error.EmployeeNotFoundException;
+import jp.co.axa.apidemo.error.InvalidRequestException;
+import jp.co.axa.apidemo.error.VersionMismatchException;
+import jp.co.axa.apidemo.services.EmployeeImportService;
 import jp.co.axa.apidemo.services.EmployeeService;
 
 @RunWith(SpringRunner.class)
@@ -36,6 +64,14 @@ public class EmployeeControllerTest {
     @MockBean
     private EmployeeService employeeService;
 
+    @MockBean
+    private EmployeeImportService employeeImportService;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
     private static final Employee mockEmployee = new Employee();
 
     {
@@ -45,22 +81,204 @@ public class EmployeeControllerTest {
         mockEmployee.setId(1L);
     }
 
+    private static Employee versionedEmployee() {
+        Employee employee = new Employee();
+        employee.setDepartment("mockDept");
+        employee.setName("mockName");
+        employee.setSalary(100);
+        employee.setId(1L);
+        employee.setVersion(3L);
+        return employee;
+    }
+
     /**
-     * Positive test case - return list of all employees
+     * Positive test case - return first page of employees
      * 
      * @throws Exception
      */
     @Test
     public void getEmployees() throws Exception {
-        Mockito.when(employeeService.retrieveEmployees()).thenReturn(Arrays.asList(mockEmployee));
+        Mockito.when(employeeService.retrieveEmployees(isNull(), eq(20), eq(Sort.Direction.ASC)))
+                .thenReturn(new EmployeePage(Arrays.asList(mockEmployee), "MQ"));
         RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/employees");
         MvcResult result = mockMvc.perform(rBuilder).andReturn();
-        String expectedStr = "[{id:1,name:mockName,department:mockDept,salary:100}]";
+        String expectedStr = "{content:[{id:1,name:mockName,department:mockDept,salary:100}],nextCursor:MQ}";
+        String actualStr = result.getResponse().getContentAsString();
+        JSONAssert.assertEquals(expectedStr, actualStr, false);
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Positive test case - cursor, limit and sort are passed on to the service
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployees_nextPage() throws Exception {
+        Mockito.when(employeeService.retrieveEmployees(eq("MQ"), eq(5), eq(Sort.Direction.DESC)))
+                .thenReturn(new EmployeePage(Arrays.asList(mockEmployee), null));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/employees?after=MQ&limit=5&sort=desc");
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        String expectedStr = "{content:[{id:1}],nextCursor:null}";
         String actualStr = result.getResponse().getContentAsString();
         JSONAssert.assertEquals(expectedStr, actualStr, false);
         Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
     }
 
+    /**
+     * Negative test case - unknown sort direction
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployees_invalidSort() throws Exception {
+        RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/employees?sort=sideways");
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        String expectedStr = "{\"errorMessage\":\"sort must be either asc or desc\",\"status\":\"BAD_REQUEST\"}";
+        String actualStr = result.getResponse().getContentAsString();
+        JSONAssert.assertEquals(expectedStr, actualStr, false);
+        Assert.assertEquals(HttpStatus.BAD_REQUEST.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Negative test case - cursor rejected by the service
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployees_invalidCursor() throws Exception {
+        Mockito.when(employeeService.retrieveEmployees(eq("???"), anyInt(), any()))
+                .thenThrow(new InvalidRequestException("Invalid cursor: ???"));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/employees?after=???");
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        Assert.assertEquals(HttpStatus.BAD_REQUEST.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Positive test case - search filters are passed on to the service
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void searchEmployees() throws Exception {
+        EmployeeSearchCriteria criteria = new EmployeeSearchCriteria("mockDept", 50, 150, "mock");
+        Mockito.when(employeeService.searchEmployees(eq(criteria), isNull(), eq(20), eq(Sort.Direction.ASC)))
+                .thenReturn(new EmployeePage(Arrays.asList(mockEmployee), null));
+        RequestBuilder rBuilder = MockMvcRequestBuilders
+                .get("/api/v1/employees/search?department=mockDept&minSalary=50&maxSalary=150&namePrefix=mock");
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        String expectedStr = "{content:[{id:1,name:mockName,department:mockDept,salary:100}],nextCursor:null}";
+        JSONAssert.assertEquals(expectedStr, result.getResponse().getContentAsString(), false);
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Positive test case - fields selects the returned properties, the id is
+     * always included
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployees_fields() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("name", "mockName");
+        Mockito.when(employeeService.searchEmployeeFields(eq(new EmployeeSearchCriteria()), isNull(), eq(20),
+                eq(Sort.Direction.ASC), eq(Arrays.asList("id", "name"))))
+                .thenReturn(new EmployeeFieldsPage(Collections.singletonList(row), "MQ"));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/employees?fields=name");
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        String expectedStr = "{content:[{id:1,name:mockName}],nextCursor:MQ}";
+        JSONAssert.assertEquals(expectedStr, result.getResponse().getContentAsString(), true);
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+        Assert.assertNotNull(result.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    /**
+     * Positive test case - a single employee reduced to the requested fields
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployee_fields() throws Exception {
+        Mockito.when(employeeService.getEmployee(anyLong())).thenReturn(versionedEmployee());
+        RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/employees/1?fields=salary, department");
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        String expectedStr = "{id:1,salary:100,department:mockDept}";
+        JSONAssert.assertEquals(expectedStr, result.getResponse().getContentAsString(), true);
+        Assert.assertEquals("\"3\"", result.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    /**
+     * Negative test case - unknown field
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void searchEmployees_unknownField() throws Exception {
+        RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/employees/search?fields=name,password");
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        String expectedStr = "{errorMessage:\"fields must be a comma separated list of [id, name, salary, department, version]\"}";
+        JSONAssert.assertEquals(expectedStr, result.getResponse().getContentAsString(), false);
+        Assert.assertEquals(HttpStatus.BAD_REQUEST.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Positive test case - ids are resolved in one request, unknown ones are
+     * reported as missing
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployeesByIds() throws Exception {
+        Mockito.when(employeeService.lookupEmployees(Arrays.asList(1L, 7L)))
+                .thenReturn(new EmployeeLookup(Arrays.asList(mockEmployee), Arrays.asList(7L)));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/employees?ids=1,7");
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        String expectedStr = "{employees:[{id:1,name:mockName}],missing:[7]}";
+        JSONAssert.assertEquals(expectedStr, result.getResponse().getContentAsString(), false);
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Positive test case - ids passed in the body of a lookup
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void lookupEmployees() throws Exception {
+        Mockito.when(employeeService.lookupEmployees(Arrays.asList(1L, 7L)))
+                .thenReturn(new EmployeeLookup(Arrays.asList(mockEmployee), Arrays.asList(7L)));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.post("/api/v1/employees/lookup").content("[1,7]")
+                .contentType(MediaType.APPLICATION_JSON);
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        String expectedStr = "{employees:[{id:1}],missing:[7]}";
+        JSONAssert.assertEquals(expectedStr, result.getResponse().getContentAsString(), false);
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Positive test case - export streams newline delimited JSON asynchronously
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void exportEmployees() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(0);
+            outputStream.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        }).when(employeeService).exportEmployees(any());
+        MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/employees/export")).andReturn();
+        Assert.assertTrue(asyncResult.getRequest().isAsyncStarted());
+        // the export has its own timeout, other async requests keep the default
+        Assert.assertEquals(3600000L, asyncResult.getRequest().getAsyncContext().getTimeout());
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult)).andReturn();
+        Assert.assertEquals("{\"id\":1}\n{\"id\":2}\n", result.getResponse().getContentAsString());
+        Assert.assertEquals(EmployeeController.APPLICATION_NDJSON_VALUE, result.getResponse().getContentType());
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+    }
+
     /**
      * Positive test case - return single employee as per employeeId passed
      * 
@@ -77,6 +295,64 @@ public class EmployeeControllerTest {
         Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
     }
 
+    /**
+     * Positive test case - version is surfaced as ETag, a matching If-None-Match
+     * gets 304 without body
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployee_notModified() throws Exception {
+        Mockito.when(employeeService.getEmployee(anyLong())).thenReturn(versionedEmployee());
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/employees/1")).andReturn();
+        Assert.assertEquals("\"3\"", result.getResponse().getHeader(HttpHeaders.ETAG));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/employees/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"");
+        result = mockMvc.perform(rBuilder).andReturn();
+        Assert.assertEquals(HttpStatus.NOT_MODIFIED.value(), result.getResponse().getStatus());
+        Assert.assertEquals("", result.getResponse().getContentAsString());
+    }
+
+    /**
+     * Positive test case - the strong ETag of a CBOR representation differs from
+     * the JSON one and only matches the CBOR representation
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployee_cborETag() throws Exception {
+        Mockito.when(employeeService.getEmployee(anyLong())).thenReturn(versionedEmployee());
+        MvcResult result = mockMvc
+                .perform(MockMvcRequestBuilders.get("/api/v1/employees/1").accept(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        Assert.assertEquals("\"3-cbor\"", result.getResponse().getHeader(HttpHeaders.ETAG));
+        result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/employees/1").accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")).andReturn();
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+        result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/employees/1").accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3-cbor\"")).andReturn();
+        Assert.assertEquals(HttpStatus.NOT_MODIFIED.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Positive test case - list pages carry a collection ETag honoured by
+     * If-None-Match
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployees_notModified() throws Exception {
+        Mockito.when(employeeService.retrieveEmployees(any(), anyInt(), any()))
+                .thenReturn(new EmployeePage(Arrays.asList(versionedEmployee()), null));
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/employees")).andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        // weak, so that Tomcat may compress the page
+        Assert.assertTrue(eTag.startsWith("W/\""));
+        result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/employees").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andReturn();
+        Assert.assertEquals(HttpStatus.NOT_MODIFIED.value(), result.getResponse().getStatus());
+    }
+
     /**
      * Negative test case - throws employee not found exception
      * 
@@ -94,6 +370,58 @@ public class EmployeeControllerTest {
         Assert.assertEquals(HttpStatus.NOT_FOUND.value(), result.getResponse().getStatus());
     }
 
+    /**
+     * Positive test case - a page of employees negotiated as Smile
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployees_smile() throws Exception {
+        Mockito.when(employeeService.retrieveEmployees(isNull(), eq(20), eq(Sort.Direction.ASC)))
+                .thenReturn(new EmployeePage(Arrays.asList(mockEmployee), "MQ"));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/employees").accept(SMILE);
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+        Assert.assertEquals(SMILE.toString(), result.getResponse().getContentType());
+        Assert.assertEquals(HttpHeaders.ACCEPT, result.getResponse().getHeader(HttpHeaders.VARY));
+        JsonNode page = new ObjectMapper(new SmileFactory()).readTree(result.getResponse().getContentAsByteArray());
+        Assert.assertEquals("mockName", page.get("content").get(0).get("name").asText());
+        Assert.assertEquals("MQ", page.get("nextCursor").asText());
+    }
+
+    /**
+     * Negative test case - errors are negotiated as CBOR as well
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployee_employeeNotFound_cbor() throws Exception {
+        Mockito.when(employeeService.getEmployee(anyLong())).thenThrow(new EmployeeNotFoundException(11L));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.get("/api/v1/employees/11").accept(MediaType.APPLICATION_CBOR);
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        Assert.assertEquals(HttpStatus.NOT_FOUND.value(), result.getResponse().getStatus());
+        Assert.assertEquals(MediaType.APPLICATION_CBOR_VALUE, result.getResponse().getContentType());
+        JsonNode error = new ObjectMapper(new CBORFactory()).readTree(result.getResponse().getContentAsByteArray());
+        Assert.assertEquals("Could not find employee with id: 11", error.get("errorMessage").asText());
+        Assert.assertEquals("NOT_FOUND", error.get("status").asText());
+    }
+
+    /**
+     * Positive test case - save employee details sent as CBOR
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void saveEmployee_cbor() throws Exception {
+        Mockito.when(employeeService.saveEmployee(mockEmployee)).thenReturn(mockEmployee);
+        byte[] body = new ObjectMapper(new CBORFactory()).writeValueAsBytes(mockEmployee);
+        RequestBuilder rBuilder = MockMvcRequestBuilders.post("/api/v1/employees").content(body)
+                .contentType(MediaType.APPLICATION_CBOR);
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        Assert.assertEquals("Employee with id: 1 created successfully!", result.getResponse().getContentAsString());
+        Assert.assertEquals(HttpStatus.CREATED.value(), result.getResponse().getStatus());
+    }
+
     /**
      * Positive test case - save employee details
      * 
@@ -151,7 +479,7 @@ public class EmployeeControllerTest {
      */
     @Test
     public void updateEmployee() throws Exception {
-        doNothing().when(employeeService).updateEmployee(anyLong(), any());
+        doNothing().when(employeeService).updateEmployee(anyLong(), any(), any());
         RequestBuilder rBuilder = MockMvcRequestBuilders.put("/api/v1/employees/1")
                 .content("{\"name\":\"mockUpdateName\",\"department\":\"mockUpdateDept\",\"salary\":1000}")
                 .contentType(MediaType.APPLICATION_JSON);
@@ -162,6 +490,76 @@ public class EmployeeControllerTest {
         Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
     }
 
+    /**
+     * Positive test case - conditional update passes the If-Match version and
+     * returns the new ETag
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void updateEmployee_ifMatch() throws Exception {
+        doNothing().when(employeeService).updateEmployee(anyLong(), any(), eq(3L));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.put("/api/v1/employees/1")
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .content("{\"name\":\"mockUpdateName\",\"department\":\"mockUpdateDept\",\"salary\":1000}")
+                .contentType(MediaType.APPLICATION_JSON);
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        Assert.assertEquals("\"4\"", result.getResponse().getHeader(HttpHeaders.ETAG));
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+        Mockito.verify(employeeService).updateEmployee(eq(1L), any(), eq(3L));
+    }
+
+    /**
+     * Positive test case - the ETag of a Smile representation is accepted by
+     * If-Match and the new ETag names the negotiated format
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void updateEmployee_ifMatchSmile() throws Exception {
+        RequestBuilder rBuilder = MockMvcRequestBuilders.put("/api/v1/employees/1")
+                .header(HttpHeaders.IF_MATCH, "\"3-smile\"").accept(SMILE, MediaType.TEXT_PLAIN)
+                .content("{\"name\":\"mockUpdateName\",\"department\":\"mockUpdateDept\",\"salary\":1000}")
+                .contentType(MediaType.APPLICATION_JSON);
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+        Assert.assertEquals("\"4-smile\"", result.getResponse().getHeader(HttpHeaders.ETAG));
+        Mockito.verify(employeeService).updateEmployee(eq(1L), any(), eq(3L));
+    }
+
+    /**
+     * Negative test case - If-Match does not match the current version
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void updateEmployee_versionMismatch() throws Exception {
+        doThrow(new VersionMismatchException(1L, "\"2\"")).when(employeeService).updateEmployee(anyLong(), any(),
+                eq(2L));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.put("/api/v1/employees/1")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .content("{\"name\":\"mockUpdateName\",\"department\":\"mockUpdateDept\",\"salary\":1000}")
+                .contentType(MediaType.APPLICATION_JSON);
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        Assert.assertEquals(HttpStatus.PRECONDITION_FAILED.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Negative test case - weak ETags never match for If-Match
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void updateEmployee_weakIfMatch() throws Exception {
+        RequestBuilder rBuilder = MockMvcRequestBuilders.put("/api/v1/employees/1")
+                .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                .content("{\"name\":\"mockUpdateName\",\"department\":\"mockUpdateDept\",\"salary\":1000}")
+                .contentType(MediaType.APPLICATION_JSON);
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        Assert.assertEquals(HttpStatus.PRECONDITION_FAILED.value(), result.getResponse().getStatus());
+        Mockito.verify(employeeService, Mockito.never()).updateEmployee(anyLong(), any(), any());
+    }
+
     /**
      * Negative test case - cannot update employee details as employee not found
      * 
@@ -170,7 +568,7 @@ public class EmployeeControllerTest {
     @Test
     public void updateEmployee_employeeNotFound() throws Exception {
         doThrow(new EmployeeNotFoundException(11L)).when(employeeService).updateEmployee(anyLong(),
-                any());
+                any(), any());
         RequestBuilder rBuilder = MockMvcRequestBuilders.put("/api/v1/employees/11")
                 .content("{\"name\":\"mockUpdateName\",\"department\":\"mockUpdateDept\",\"salary\":1000}")
                 .contentType(MediaType.APPLICATION_JSON);
@@ -189,7 +587,7 @@ public class EmployeeControllerTest {
      */
     @Test
     public void updateEmployee_incorrectJSON() throws Exception {
-        doNothing().when(employeeService).updateEmployee(anyLong(), any());
+        doNothing().when(employeeService).updateEmployee(anyLong(), any(), any());
         RequestBuilder rBuilder = MockMvcRequestBuilders.put("/api/v1/employees/11")
                 .content("{\"name:\"mockUpdateName\",\"department\":\"mockUpdateDept\",\"salary\":1000}")
                 .contentType(MediaType.APPLICATION_JSON);
@@ -205,7 +603,7 @@ public class EmployeeControllerTest {
      */
     @Test
     public void updateEmployee_invalidParamSalary() throws Exception {
-        doNothing().when(employeeService).updateEmployee(anyLong(), any());
+        doNothing().when(employeeService).updateEmployee(anyLong(), any(), any());
         RequestBuilder rBuilder = MockMvcRequestBuilders.put("/api/v1/employees/11")
                 .content("{\"name\":\"mockName\",\"salary\":0,\"department\":\"mockDept\"}")
                 .contentType(MediaType.APPLICATION_JSON);
@@ -221,11 +619,95 @@ public class EmployeeControllerTest {
      */
     @Test
     public void updateEmployee_incorrectMediaType() throws Exception {
-        doNothing().when(employeeService).updateEmployee(anyLong(), any());
+        doNothing().when(employeeService).updateEmployee(anyLong(), any(), any());
         RequestBuilder rBuilder = MockMvcRequestBuilders.put("/api/v1/employees/11")
                 .content("{\"name\":\"mockName\",\"salary\":1000,\"department\":\"mockDept\"}")
                 .contentType(MediaType.TEXT_PLAIN);
         MvcResult result = mockMvc.perform(rBuilder).andReturn();
         Assert.assertEquals(HttpStatus.NOT_ACCEPTABLE.value(), result.getResponse().getStatus());
     }
-}
\ No newline at end of file
+
+    /**
+     * Positive test case - save many employees at once
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void saveEmployees() throws Exception {
+        Mockito.when(employeeService.saveEmployees(any())).thenReturn(Arrays.asList(1L, 2L));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.post("/api/v1/employees/batch")
+                .content("[{\"name\":\"mockName\",\"salary\":100,\"department\":\"mockDept\"},"
+                        + "{\"name\":\"mockName2\",\"salary\":200,\"department\":\"mockDept\"}]")
+                .contentType(MediaType.APPLICATION_JSON);
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        JSONAssert.assertEquals("{count:2,ids:[1,2]}", result.getResponse().getContentAsString(), true);
+        Assert.assertEquals(HttpStatus.CREATED.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Negative test case - batch rejected with errors reported per item
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void updateEmployees_invalidItems() throws Exception {
+        Mockito.when(employeeService.updateEmployees(any())).thenThrow(new BatchValidationException(
+                Arrays.asList(new BatchItemError(1, 11L, "id", "Could not find employee with id: 11"))));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.put("/api/v1/employees/batch")
+                .content("[{\"id\":1,\"name\":\"mockName\",\"salary\":100,\"department\":\"mockDept\"},"
+                        + "{\"id\":11,\"name\":\"mockName\",\"salary\":100,\"department\":\"mockDept\"}]")
+                .contentType(MediaType.APPLICATION_JSON);
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        String expectedStr = "{status:NOT_ACCEPTABLE,itemErrors:[{index:1,id:11,field:id}]}";
+        JSONAssert.assertEquals(expectedStr, result.getResponse().getContentAsString(), false);
+        Assert.assertEquals(HttpStatus.NOT_ACCEPTABLE.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Positive test case - CSV import answers the import result
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void importEmployees() throws Exception {
+        Mockito.when(employeeImportService.importStream(any())).thenReturn(new ImportResult(2, 1, 1,
+                Arrays.asList(new BatchItemError(3, null, "salary", "must be an integer")), 5));
+        RequestBuilder rBuilder = MockMvcRequestBuilders.post("/api/v1/employees/import")
+                .content("name,salary,department\nmockName,100,mockDept\nmockName,x,mockDept\n")
+                .contentType(EmployeeController.TEXT_CSV_VALUE);
+        MvcResult result = mockMvc.perform(rBuilder).andReturn();
+        String expectedStr = "{rows:2,imported:1,failed:1,errors:[{index:3,field:salary}]}";
+        JSONAssert.assertEquals(expectedStr, result.getResponse().getContentAsString(), false);
+        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+    }
+
+    /**
+     * Negative test case - reads are shed with 503 and Retry-After once the read
+     * budget is exhausted, while writes still have their own budget
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void getEmployee_readBudgetExhausted() throws Exception {
+        AdaptiveConcurrencyLimit reads = admissionControl.getReads();
+        int permits = reads.getLimit();
+        for (int i = 0; i < permits; i++) {
+            Assert.assertEquals(AdaptiveConcurrencyLimit.Outcome.ADMITTED, reads.acquire());
+        }
+        try {
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/employees/1")).andReturn();
+            Assert.assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), result.getResponse().getStatus());
+            Assert.assertEquals("1", result.getResponse().getHeader(HttpHeaders.RETRY_AFTER));
+            JSONAssert.assertEquals("{status:SERVICE_UNAVAILABLE}", result.getResponse().getContentAsString(), false);
+            Mockito.verify(employeeService, Mockito.never()).getEmployee(anyLong());
+
+            result = mockMvc.perform(MockMvcRequestBuilders.delete("/api/v1/employees/1")).andReturn();
+            Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+        } finally {
+            for (int i = 0; i < permits; i++) {
+                reads.release(0);
+            }
+        }
+        Assert.assertEquals(0, reads.getInFlight());
+    }
+}
@@ -0,0 +1,236 @@
+package jp.co.axa.apidemo.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeService;
+
+/**
+ * Concurrent mixed read/write load against the real EmployeeController
+ * endpoints on a random port. Latencies are recorded per operation in HDR
+ * histograms and summarized (throughput, p50/p90/p99/p99.9/max) in a report
+ * file, next to one .hgrm percentile distribution per operation.
+ * 
+ * Excluded from the regular build, run with mvn -Pload-test test. Tunable with
+ * -Dload.threads, -Dload.warmup and -Dload.duration (seconds), -Dload.readRatio,
+ * -Dload.seedRows, -Dload.basePath and -Dload.report.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "logging.level.jp.co=WARN")
+public class EmployeeLoadTest {
+
+    private static final int THREADS = Integer.getInteger("load.threads", 32);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup", 5);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration", 30);
+    private static final double READ_RATIO = Double.parseDouble(System.getProperty("load.readRatio", "0.9"));
+    private static final int SEED_ROWS = Integer.getInteger("load.seedRows", 10000);
+    private static final String BASE_PATH = System.getProperty("load.basePath", "/api/v1");
+    private static final String REPORT = System.getProperty("load.report", "target/load-test-report.txt");
+
+    // 1 hour in microseconds, 3 significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private enum Operation {
+        GET_EMPLOYEE, LIST_EMPLOYEES, UPDATE_EMPLOYEE, SAVE_EMPLOYEE
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    private List<Long> ids;
+
+    private volatile boolean running;
+
+    @Test
+    public void mixedLoad() throws Exception {
+        // keep-alive connection cache large enough for every worker
+        System.setProperty("http.maxConnections", String.valueOf(THREADS));
+        seed();
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS);
+        running = true;
+        for (int i = 0; i < THREADS; i++) {
+            workers.execute(this::work);
+        }
+        TimeUnit.SECONDS.sleep(WARMUP_SECONDS);
+        Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        // resets the recorders, everything recorded so far was warmup
+        recorders.forEach((operation, recorder) -> recorder.getIntervalHistogram());
+        errors.values().forEach(LongAdder::reset);
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(DURATION_SECONDS);
+        recorders.forEach((operation, recorder) -> histograms.put(operation, recorder.getIntervalHistogram()));
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        running = false;
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+
+        long total = histograms.values().stream().mapToLong(Histogram::getTotalCount).sum();
+        long failed = errors.values().stream().mapToLong(LongAdder::sum).sum();
+        report(histograms, elapsedSeconds);
+        Assert.assertTrue("no request completed", total > 0);
+        Assert.assertTrue(failed + " of " + total + " requests failed", failed <= total / 100);
+    }
+
+    private void seed() {
+        List<Employee> employees = new ArrayList<>(SEED_ROWS);
+        for (int i = 0; i < SEED_ROWS; i++) {
+            employees.add(employee(i));
+        }
+        ids = new ArrayList<>(SEED_ROWS);
+        for (int from = 0; from < SEED_ROWS; from += 1000) {
+            ids.addAll(employeeService.saveEmployees(employees.subList(from, Math.min(from + 1000, SEED_ROWS))));
+        }
+    }
+
+    private static Employee employee(int i) {
+        Employee employee = new Employee();
+        employee.setName("Load Employee " + i);
+        employee.setSalary(1000 + i % 9000);
+        employee.setDepartment("Load Dept " + i % 20);
+        return employee;
+    }
+
+    private void work() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            Operation operation;
+            if (random.nextDouble() < READ_RATIO) {
+                operation = random.nextInt(5) == 0 ? Operation.LIST_EMPLOYEES : Operation.GET_EMPLOYEE;
+            } else {
+                operation = random.nextInt(5) == 0 ? Operation.SAVE_EMPLOYEE : Operation.UPDATE_EMPLOYEE;
+            }
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                ok = execute(operation, random);
+            } catch (IOException e) {
+                ok = false;
+            }
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            recorders.get(operation).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            if (!ok) {
+                errors.get(operation).increment();
+            }
+        }
+    }
+
+    private boolean execute(Operation operation, ThreadLocalRandom random) throws IOException {
+        Long id = ids.get(random.nextInt(ids.size()));
+        String body = "{\"name\":\"Load Employee " + random.nextInt(100000) + "\",\"salary\":"
+                + (1000 + random.nextInt(9000)) + ",\"department\":\"Load Dept " + random.nextInt(20) + "\"}";
+        switch (operation) {
+        case GET_EMPLOYEE:
+            return request("GET", "/employees/" + id, null) == 200;
+        case LIST_EMPLOYEES:
+            return request("GET", "/employees?limit=20", null) == 200;
+        case UPDATE_EMPLOYEE:
+            return request("PUT", "/employees/" + id, body) == 200;
+        default:
+            return request("POST", "/employees", body) == 201;
+        }
+    }
+
+    private int request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + BASE_PATH + path)
+                .openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        // drain the body so the connection goes back to the keep-alive cache
+        try (InputStream inputStream = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (inputStream != null) {
+                byte[] buffer = new byte[8192];
+                while (inputStream.read(buffer) != -1) {
+                    // discard
+                }
+            }
+        }
+        return status;
+    }
+
+    private void report(Map<Operation, Histogram> histograms, double elapsedSeconds) throws IOException {
+        Path reportPath = Paths.get(REPORT);
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, "UTF-8");
+        out.printf(Locale.ROOT, "threads=%d duration=%ds warmup=%ds readRatio=%.2f seedRows=%d basePath=%s%n",
+                THREADS, DURATION_SECONDS, WARMUP_SECONDS, READ_RATIO, SEED_ROWS, BASE_PATH);
+        out.printf(Locale.ROOT, "%-16s %9s %10s %9s %9s %9s %9s %9s %9s %7s%n", "operation", "count", "req/s",
+                "p50(us)", "p90(us)", "p99(us)", "p999(us)", "max(us)", "mean(us)", "errors");
+        Histogram all = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long allErrors = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            long operationErrors = errors.get(operation).sum();
+            all.add(histogram);
+            allErrors += operationErrors;
+            print(out, operation.name(), histogram, elapsedSeconds, operationErrors);
+            Path distribution = Paths.get(REPORT + "." + operation.name().toLowerCase(Locale.ROOT) + ".hgrm");
+            try (PrintStream hgrm = new PrintStream(Files.newOutputStream(distribution), true, "UTF-8")) {
+                histogram.outputPercentileDistribution(hgrm, 1.0);
+            }
+        }
+        print(out, "ALL", all, elapsedSeconds, allErrors);
+        String report = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        Files.write(reportPath, report.getBytes(StandardCharsets.UTF_8));
+        System.out.print(report);
+    }
+
+    private static void print(PrintStream out, String name, Histogram histogram, double elapsedSeconds,
+            long errorCount) {
+        out.printf(Locale.ROOT, "%-16s %9d %10.1f %9d %9d %9d %9d %9d %9.1f %7d%n", name,
+                histogram.getTotalCount(), histogram.getTotalCount() / elapsedSeconds,
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9), histogram.getMaxValue(),
+                histogram.getMean(), errorCount);
+    }
+}
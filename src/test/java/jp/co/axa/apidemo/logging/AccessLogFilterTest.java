@@ -0,0 +1,83 @@
+package jp.co.axa.apidemo.logging;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+public class AccessLogFilterTest {
+
+    private AccessLogFilter accessLogFilter;
+
+    private ListAppender<ILoggingEvent> appender;
+
+    private Logger logger;
+
+    @Before
+    public void setUp() {
+        accessLogFilter = new AccessLogFilter(1.0);
+        logger = (Logger) LoggerFactory.getLogger(AccessLogFilter.ACCESS_LOG);
+        appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @After
+    public void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    private MockHttpServletResponse perform(int status) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/employees");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(status);
+        accessLogFilter.doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) {
+                AccessLogFilter.setRowCount(req, 20);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Positive test case - one record with method, path, status and rows
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void logsRequest() throws Exception {
+        perform(200);
+        Assert.assertEquals(1, appender.list.size());
+        String message = appender.list.get(0).getFormattedMessage();
+        Assert.assertTrue(message, message.startsWith("method=GET path=/api/v1/employees status=200 latencyMicros="));
+        Assert.assertTrue(message, message.endsWith(" rows=20"));
+    }
+
+    /**
+     * Positive test case - successful requests are sampled, errors are always
+     * logged
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void samplesSuccessOnly() throws Exception {
+        accessLogFilter = new AccessLogFilter(0.0);
+        perform(200);
+        Assert.assertTrue(appender.list.isEmpty());
+        perform(404);
+        Assert.assertEquals(1, appender.list.size());
+        Assert.assertTrue(appender.list.get(0).getFormattedMessage().contains("status=404"));
+    }
+}
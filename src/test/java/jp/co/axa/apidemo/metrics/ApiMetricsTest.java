@@ -0,0 +1,82 @@
+package jp.co.axa.apidemo.metrics;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jp.co.axa.apidemo.error.DefaultExceptionHandler;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ApiMetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    /**
+     * Positive test case - repository calls are timed per method
+     */
+    @Test
+    public void repositoryTimer() {
+        employeeRepository.findExistingIds(Collections.singletonList(1L));
+        Timer timer = meterRegistry.find(RepositoryMetricsAspect.TIMER_NAME).tag("method", "findExistingIds")
+                .tag("exception", "none").timer();
+        Assert.assertNotNull(timer);
+        Assert.assertTrue(timer.count() >= 1);
+
+        employeeRepository.findAll();
+        Assert.assertNotNull(meterRegistry.find(RepositoryMetricsAspect.TIMER_NAME).tag("method", "findAll").timer());
+    }
+
+    /**
+     * Positive test case - handled errors are counted per handler and status
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void errorCounter() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/employees/{employeeId}", Long.MAX_VALUE))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+        Counter counter = meterRegistry.find(DefaultExceptionHandler.ERROR_COUNTER).tag("handler", "employeeNotFound")
+                .tag("status", "404").counter();
+        Assert.assertNotNull(counter);
+        Assert.assertTrue(counter.count() >= 1);
+    }
+
+    /**
+     * Positive test case - the prometheus scrape exposes pool, hibernate and
+     * request meters
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void prometheusScrape() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/employees"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        String scrape = mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(MockMvcResultMatchers.status().isOk()).andReturn().getResponse().getContentAsString();
+        Assert.assertTrue(scrape.contains("employee_repository_seconds_bucket"));
+        Assert.assertTrue(scrape.contains("hikaricp_connections_active"));
+        Assert.assertTrue(scrape.contains("hibernate_"));
+    }
+}
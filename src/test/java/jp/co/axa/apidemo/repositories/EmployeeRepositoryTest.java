@@ -0,0 +1,161 @@
+package jp.co.axa.apidemo.repositories;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.Tuple;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import jp.co.axa.apidemo.dto.DepartmentMedian;
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.entities.Employee;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class EmployeeRepositoryTest {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    private Employee persist(String name, int salary, String department) {
+        Employee employee = new Employee();
+        employee.setName(name);
+        employee.setSalary(salary);
+        employee.setDepartment(department);
+        return employeeRepository.save(employee);
+    }
+
+    private static List<String> names(List<Employee> employees) {
+        return employees.stream().map(Employee::getName).collect(Collectors.toList());
+    }
+
+    @Before
+    public void setUp() {
+        persist("Alice", 5000, "RepoTestSales");
+        persist("Alan", 7000, "RepoTestSales");
+        persist("Bob", 6000, "RepoTestSales");
+        persist("Al_x", 6500, "RepoTestSales");
+        persist("Alma", 6500, "RepoTestLegal");
+        employeeRepository.flush();
+    }
+
+    /**
+     * Positive test case - generated ids never reach the ids of the initial data
+     */
+    @Test
+    public void save_idAboveInitialData() {
+        Assert.assertTrue(employeeRepository.findById(4032934L).isPresent());
+        Employee saved = persist("Alex", 5000, "RepoTestSales");
+        Assert.assertTrue(saved.getId() >= Employee.FIRST_GENERATED_ID);
+    }
+
+    /**
+     * Positive test case - filters are combined and the result is capped
+     */
+    @Test
+    public void findLimited_combinedFilters() {
+        Specification<Employee> specification = Specification
+                .where(EmployeeSpecifications.departmentEquals("RepoTestSales"))
+                .and(EmployeeSpecifications.salaryBetween(5500, null))
+                .and(EmployeeSpecifications.nameStartsWith("Al"));
+        List<Employee> employees = employeeRepository.findLimited(specification, Sort.by("id"), 10);
+        Assert.assertEquals(2, employees.size());
+        Assert.assertTrue(names(employees).containsAll(Arrays.asList("Alan", "Al_x")));
+    }
+
+    /**
+     * Positive test case - wildcard characters of the prefix are taken literally
+     */
+    @Test
+    public void findLimited_nameStartsWithEscapesWildcards() {
+        List<Employee> employees = employeeRepository
+                .findLimited(EmployeeSpecifications.nameStartsWith("Al_"), Sort.by("id"), 10);
+        Assert.assertEquals(Arrays.asList("Al_x"), names(employees));
+    }
+
+    /**
+     * Positive test case - keyset bound and sort direction are applied together
+     * with the limit
+     */
+    @Test
+    public void findLimited_keysetDescending() {
+        Specification<Employee> department = EmployeeSpecifications.departmentEquals("RepoTestSales");
+        List<Employee> all = employeeRepository.findLimited(department, Sort.by(Sort.Direction.DESC, "id"), 10);
+        Assert.assertEquals(4, all.size());
+        List<Employee> page = employeeRepository.findLimited(
+                Specification.where(department)
+                        .and(EmployeeSpecifications.idAfter(all.get(1).getId(), Sort.Direction.DESC)),
+                Sort.by(Sort.Direction.DESC, "id"), 1);
+        Assert.assertEquals(names(all.subList(2, 3)), names(page));
+    }
+
+    /**
+     * Positive test case - only the requested attributes are selected, aliased
+     * by name
+     */
+    @Test
+    public void findLimitedFields() {
+        List<Tuple> tuples = employeeRepository.findLimitedFields(
+                EmployeeSpecifications.departmentEquals("RepoTestSales"), Sort.by(Sort.Direction.DESC, "salary"), 2,
+                Arrays.asList("id", "name"));
+        Assert.assertEquals(2, tuples.size());
+        Assert.assertEquals(2, tuples.get(0).getElements().size());
+        Assert.assertEquals("Alan", tuples.get(0).get("name"));
+        Assert.assertTrue(tuples.get(0).get("id") instanceof Long);
+    }
+
+    /**
+     * Positive test case - aggregates of one department computed by the database
+     */
+    @Test
+    public void summarizeDepartment() {
+        DepartmentStats stats = employeeRepository.summarizeDepartment("RepoTestSales").get();
+        Assert.assertEquals(4, stats.getHeadcount());
+        Assert.assertEquals(Long.valueOf(24500), stats.getTotalSalary());
+        Assert.assertEquals(Integer.valueOf(5000), stats.getMinSalary());
+        Assert.assertEquals(Integer.valueOf(7000), stats.getMaxSalary());
+        Assert.assertEquals(6125.0, stats.getAverageSalary(), 0.001);
+        Assert.assertEquals(6250.0, employeeRepository.findMedianSalary("RepoTestSales"), 0.001);
+        Assert.assertFalse(employeeRepository.summarizeDepartment("RepoTestNobody").isPresent());
+    }
+
+    /**
+     * Positive test case - the mean salary is not truncated to an integer
+     */
+    @Test
+    public void summarizeDepartment_fractionalMean() {
+        persist("Fred", 1, "RepoTestFraction");
+        persist("Fiona", 2, "RepoTestFraction");
+        Assert.assertEquals(1.5, employeeRepository.summarizeDepartment("RepoTestFraction").get().getAverageSalary(),
+                0.001);
+        DepartmentStats stats = employeeRepository.summarizeDepartments().stream()
+                .filter(s -> s.getDepartment().equals("RepoTestFraction")).findFirst().get();
+        Assert.assertEquals(1.5, stats.getAverageSalary(), 0.001);
+    }
+
+    /**
+     * Positive test case - one row per department
+     */
+    @Test
+    public void summarizeDepartments() {
+        List<DepartmentStats> stats = employeeRepository.summarizeDepartments();
+        DepartmentStats legal = stats.stream().filter(s -> s.getDepartment().equals("RepoTestLegal")).findFirst()
+                .get();
+        Assert.assertEquals(1, legal.getHeadcount());
+        DepartmentMedian median = employeeRepository.findMedianSalaries().stream()
+                .filter(m -> m.getDepartment().equals("RepoTestLegal")).findFirst().get();
+        Assert.assertEquals(6500.0, median.getMedianSalary(), 0.001);
+    }
+}
@@ -0,0 +1,107 @@
+package jp.co.axa.apidemo.services;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CsvSegmentReaderTest {
+
+    private Path file;
+
+    private FileChannel open(String content) throws IOException {
+        file = Files.createTempFile("csv-segment-reader-", ".csv");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Positive test case - quoted and unquoted fields, CRLF and blank lines
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void readFields() throws IOException {
+        try (FileChannel channel = open("a, b ,\"c,\"\"d\"\"\"\r\n\n7,-12,\n")) {
+            CsvSegmentReader reader = new CsvSegmentReader(channel, 0, channel.size());
+            Assert.assertTrue(reader.next());
+            Assert.assertEquals(1, reader.line());
+            Assert.assertEquals(3, reader.fieldCount());
+            Assert.assertEquals("a", reader.text(0));
+            Assert.assertEquals("b", reader.text(1));
+            Assert.assertEquals("c,\"d\"", reader.text(2));
+            Assert.assertTrue(reader.next());
+            Assert.assertEquals(3, reader.line());
+            Assert.assertEquals(Integer.valueOf(7), reader.integer(0));
+            Assert.assertEquals(Integer.valueOf(-12), reader.integer(1));
+            Assert.assertNull(reader.integer(2));
+            Assert.assertEquals("", reader.text(2));
+            Assert.assertNull(reader.text(3));
+            Assert.assertFalse(reader.next());
+        }
+    }
+
+    /**
+     * Negative test case - anything but an int is rejected
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void readInvalidInteger() throws IOException {
+        try (FileChannel channel = open("12a,2147483648,2147483647")) {
+            CsvSegmentReader reader = new CsvSegmentReader(channel, 0, channel.size());
+            Assert.assertTrue(reader.next());
+            for (int field = 0; field < 2; field++) {
+                try {
+                    reader.integer(field);
+                    Assert.fail();
+                } catch (NumberFormatException e) {
+                    // expected
+                }
+            }
+            Assert.assertEquals(Integer.valueOf(Integer.MAX_VALUE), reader.integer(2));
+        }
+    }
+
+    /**
+     * Positive test case - segments start after line breaks and together hold
+     * every line exactly once
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void split() throws IOException {
+        StringBuilder content = new StringBuilder("header\n");
+        for (int i = 0; i < 1000; i++) {
+            content.append(i).append(",row\n");
+        }
+        try (FileChannel channel = open(content.toString())) {
+            long[] boundaries = CsvSegmentReader.split(channel, 7, channel.size(), 4);
+            Assert.assertEquals(5, boundaries.length);
+            List<Integer> values = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.length; i++) {
+                CsvSegmentReader reader = new CsvSegmentReader(channel, boundaries[i], boundaries[i + 1]);
+                while (reader.next()) {
+                    values.add(reader.integer(0));
+                }
+            }
+            Assert.assertEquals(1000, values.size());
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals(Integer.valueOf(i), values.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package jp.co.axa.apidemo.services;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.FileSystemUtils;
+
+import jp.co.axa.apidemo.dto.BackupResult;
+import jp.co.axa.apidemo.entities.Employee;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("persistent")
+@SpringBootTest(properties = { "employee.db.dir=./target/backup-test/data",
+        "employee.backup.dir=./target/backup-test/backups" })
+public class DatabaseBackupServiceTest {
+
+    @Autowired
+    private DatabaseBackupService databaseBackupService;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @BeforeClass
+    public static void cleanUp() {
+        FileSystemUtils.deleteRecursively(new File("target/backup-test"));
+    }
+
+    /**
+     * Positive test case - an online backup restores into a database holding the
+     * rows written before it
+     * 
+     * @throws SQLException
+     */
+    @Test
+    public void backupAndRestore() throws SQLException {
+        Employee employee = new Employee();
+        employee.setName("Backup Employee");
+        employee.setSalary(1000);
+        employee.setDepartment("backupDept");
+        Long id = employeeService.saveEmployee(employee).getId();
+
+        BackupResult result = databaseBackupService.backup();
+        Assert.assertTrue(Files.isRegularFile(Paths.get(result.getFile())));
+        Assert.assertEquals(result.getBytes(), new File(result.getFile()).length());
+
+        String url = "jdbc:h2:file:./target/backup-test/restored/employees";
+        DatabaseBackupService.restore(Paths.get(result.getFile()), url);
+        try (Connection connection = DriverManager.getConnection(url + ";IFEXISTS=TRUE", "uname", "password");
+                PreparedStatement statement = connection
+                        .prepareStatement("SELECT EMPLOYEE_NAME FROM EMPLOYEE WHERE ID = ?")) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                Assert.assertTrue(resultSet.next());
+                Assert.assertEquals("Backup Employee", resultSet.getString(1));
+            }
+        }
+    }
+
+    /**
+     * Negative test case - only file databases can be restored
+     */
+    @Test(expected = IllegalStateException.class)
+    public void restore_inMemory() {
+        DatabaseBackupService.restore(Paths.get("pom.xml"), "jdbc:h2:mem:testdb");
+    }
+}
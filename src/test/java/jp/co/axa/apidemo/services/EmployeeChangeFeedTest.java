@@ -0,0 +1,131 @@
+package jp.co.axa.apidemo.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jp.co.axa.apidemo.dto.EmployeeChange;
+import jp.co.axa.apidemo.entities.Employee;
+
+public class EmployeeChangeFeedTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private EmployeeChangeFeed employeeChangeFeed;
+
+    /**
+     * Emitter keeping the events it is asked to send
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new ArrayList<>();
+
+        private boolean failing;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            Set<DataWithMediaType> parts = builder.build();
+            StringBuilder event = new StringBuilder();
+            for (DataWithMediaType part : parts) {
+                if (MediaType.APPLICATION_JSON.equals(part.getMediaType())) {
+                    EmployeeChange change = OBJECT_MAPPER.readValue(part.getData().toString(), EmployeeChange.class);
+                    event.append(change.getType()).append(' ').append(change.getEmployee().getId());
+                } else {
+                    event.append(part.getData());
+                }
+            }
+            events.add(event.toString().trim());
+        }
+    }
+
+    @Before
+    public void setUp() {
+        employeeChangeFeed = new EmployeeChangeFeed();
+        ReflectionTestUtils.setField(employeeChangeFeed, "bufferSize", 4);
+        ReflectionTestUtils.setField(employeeChangeFeed, "maxSubscribers", 2);
+        ReflectionTestUtils.setField(employeeChangeFeed, "threads", 1);
+        ReflectionTestUtils.setField(employeeChangeFeed, "drainBatch", 2);
+        ReflectionTestUtils.setField(employeeChangeFeed, "objectMapper", OBJECT_MAPPER);
+        employeeChangeFeed.start();
+        employeeChangeFeed.stop();
+        ReflectionTestUtils.setField(employeeChangeFeed, "executor", new SyncTaskExecutor());
+    }
+
+    private void publish(EmployeeChangedEvent.Type type, long... ids) {
+        List<Employee> employees = new ArrayList<>();
+        for (long id : ids) {
+            Employee employee = new Employee();
+            employee.setId(id);
+            employees.add(employee);
+        }
+        employeeChangeFeed.onEmployeeChanged(new EmployeeChangedEvent(type, employees));
+    }
+
+    /**
+     * Positive test case - live subscribers receive every change with increasing
+     * ids, a resuming subscriber receives the buffered changes after its
+     * Last-Event-ID
+     */
+    @Test
+    public void subscribe() {
+        publish(EmployeeChangedEvent.Type.CREATED, 10);
+        RecordingEmitter live = new RecordingEmitter();
+        Assert.assertTrue(employeeChangeFeed.subscribe(live, null));
+        publish(EmployeeChangedEvent.Type.CREATED, 11, 12, 13);
+        publish(EmployeeChangedEvent.Type.DELETED, 11);
+        Assert.assertEquals(Arrays.asList("id:2\ndata:CREATED 11", "id:3\ndata:CREATED 12",
+                "id:4\ndata:CREATED 13", "id:5\ndata:DELETED 11"), live.events);
+
+        RecordingEmitter resumed = new RecordingEmitter();
+        Assert.assertTrue(employeeChangeFeed.subscribe(resumed, 3L));
+        Assert.assertEquals(Arrays.asList("id:4\ndata:CREATED 13", "id:5\ndata:DELETED 11"), resumed.events);
+        Assert.assertFalse(employeeChangeFeed.subscribe(new RecordingEmitter(), null));
+    }
+
+    /**
+     * Negative test case - resuming before the oldest buffered change, or after
+     * the newest one, gives a reset event
+     */
+    @Test
+    public void subscribe_reset() {
+        publish(EmployeeChangedEvent.Type.CREATED, 1, 2, 3, 4, 5);
+        RecordingEmitter tooOld = new RecordingEmitter();
+        employeeChangeFeed.subscribe(tooOld, 0L);
+        Assert.assertEquals(Arrays.asList("event:reset\ndata:5"), tooOld.events);
+        RecordingEmitter unknown = new RecordingEmitter();
+        employeeChangeFeed.subscribe(unknown, 9L);
+        Assert.assertEquals(Arrays.asList("event:reset\ndata:5"), unknown.events);
+        Assert.assertEquals(0, employeeChangeFeed.subscriberCount());
+    }
+
+    /**
+     * Negative test case - a subscriber that cannot be written to is dropped
+     * without affecting the others
+     */
+    @Test
+    public void subscribe_brokenSubscriber() {
+        RecordingEmitter broken = new RecordingEmitter();
+        RecordingEmitter healthy = new RecordingEmitter();
+        employeeChangeFeed.subscribe(broken, null);
+        employeeChangeFeed.subscribe(healthy, null);
+        broken.failing = true;
+        publish(EmployeeChangedEvent.Type.UPDATED, 7);
+        Assert.assertEquals(1, employeeChangeFeed.subscriberCount());
+        Assert.assertEquals(Arrays.asList("id:1\ndata:UPDATED 7"), healthy.events);
+    }
+}
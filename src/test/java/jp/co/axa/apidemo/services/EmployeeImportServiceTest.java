@@ -0,0 +1,103 @@
+package jp.co.axa.apidemo.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import jp.co.axa.apidemo.dto.BatchItemError;
+import jp.co.axa.apidemo.dto.ImportResult;
+import jp.co.axa.apidemo.error.InvalidRequestException;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "employee.import.threads=3", "employee.import.chunk-size=7" })
+public class EmployeeImportServiceTest {
+
+    @Autowired
+    private EmployeeImportService employeeImportService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    @Qualifier(EmployeeExecutorConfiguration.EMPLOYEE_IMPORT_EXECUTOR)
+    private ThreadPoolTaskExecutor importExecutor;
+
+    private ImportResult importCsv(String csv) throws IOException {
+        return employeeImportService.importStream(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Positive test case - valid rows of every segment are imported, invalid ones
+     * are reported with their line number
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void importCsv() throws IOException {
+        StringBuilder csv = new StringBuilder("department,salary,name,ignored\n");
+        for (int i = 0; i < 100; i++) {
+            if (i == 10) {
+                csv.append("importDept,ten,\"Import, Employee\",x\n");
+            } else if (i == 60) {
+                csv.append("importDept,100,,x\n");
+            } else {
+                csv.append("importDept,").append(100 + i).append(",\"Import \"\"Employee\"\" ").append(i)
+                        .append("\",x\n");
+            }
+        }
+        ImportResult result = importCsv(csv.toString());
+        Assert.assertEquals(100, result.getRows());
+        Assert.assertEquals(98, result.getImported());
+        Assert.assertEquals(2, result.getFailed());
+        Assert.assertEquals(2, result.getErrors().size());
+        BatchItemError first = result.getErrors().get(0);
+        Assert.assertEquals(12, first.getIndex());
+        Assert.assertEquals("salary", first.getField());
+        Assert.assertEquals(62, result.getErrors().get(1).getIndex());
+        Assert.assertEquals("name", result.getErrors().get(1).getField());
+        Assert.assertEquals(98, employeeRepository.summarizeDepartment("importDept").get().getHeadcount());
+        Assert.assertTrue(employeeRepository.findAll().stream()
+                .anyMatch(employee -> "Import \"Employee\" 99".equals(employee.getName())));
+    }
+
+    /**
+     * Positive test case - the segments of consecutive imports run on the
+     * shared import executor, which never grows beyond employee.import.threads
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void importCsv_sharedExecutor() throws IOException {
+        StringBuilder csv = new StringBuilder("name,salary,department\n");
+        for (int i = 0; i < 30; i++) {
+            csv.append("Import Shared ").append(i).append(",100,importSharedDept\n");
+        }
+        long submitted = importExecutor.getThreadPoolExecutor().getTaskCount();
+        Assert.assertEquals(30, importCsv(csv.toString()).getImported());
+        Assert.assertEquals(30, importCsv(csv.toString()).getImported());
+        Assert.assertEquals(submitted + 6, importExecutor.getThreadPoolExecutor().getTaskCount());
+        Assert.assertEquals(3, importExecutor.getMaxPoolSize());
+        Assert.assertTrue(importExecutor.getThreadPoolExecutor().getLargestPoolSize() <= 3);
+        Assert.assertEquals(60, employeeRepository.summarizeDepartment("importSharedDept").get().getHeadcount());
+    }
+
+    /**
+     * Negative test case - the header must name every column
+     * 
+     * @throws IOException
+     */
+    @Test(expected = InvalidRequestException.class)
+    public void importCsv_missingColumn() throws IOException {
+        importCsv("name,salary\nImport Employee,100\n");
+    }
+}
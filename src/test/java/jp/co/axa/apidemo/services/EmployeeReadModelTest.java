@@ -0,0 +1,155 @@
+package jp.co.axa.apidemo.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.dto.EmployeeSearchCriteria;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.repositories.EmployeeSpecifications;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "employee.read-model.enabled=true")
+public class EmployeeReadModelTest {
+
+    @Autowired
+    private EmployeeReadModel employeeReadModel;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    private static Employee employee(String name, Integer salary, String department) {
+        Employee employee = new Employee();
+        employee.setName(name);
+        employee.setSalary(salary);
+        employee.setDepartment(department);
+        return employee;
+    }
+
+    /**
+     * Positive test case - after single and batch writes the read model answers
+     * lists, searches and statistics exactly like the database
+     */
+    @Test
+    public void mirrorsDatabase() {
+        Employee first = employeeService.saveEmployee(employee("Read One", 100, "readDept"));
+        Employee second = employeeService.saveEmployee(employee("Read Two", null, "readDept"));
+        Employee third = employeeService.saveEmployee(employee("Read Three", 300, "readOther"));
+        employeeService.saveEmployees(Arrays.asList(employee("Read Four", 401, "readDept"),
+                employee("Read Five", 500, "readDept"), employee("Other Six", 600, "readOther")));
+        employeeService.updateEmployee(first.getId(), employee("Read One", 150, "readDept"), null);
+        employeeService.updateEmployee(third.getId(), employee("Read Three", 350, "readDept"), 0L);
+        Employee batchUpdate = employee("Read Two", 250, "readOther");
+        batchUpdate.setId(second.getId());
+        employeeService.updateEmployees(Arrays.asList(batchUpdate));
+        employeeService.deleteEmployee(first.getId());
+
+        Assert.assertEquals(employeeRepository.count(), employeeReadModel.size());
+        Assert.assertEquals(
+                employeeRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, PageRequest.of(0, 1000)),
+                employeeReadModel.page(null, 1000, Sort.Direction.ASC));
+        Assert.assertEquals(
+                employeeRepository.findByIdLessThanOrderByIdDesc(third.getId(), PageRequest.of(0, 2)),
+                employeeReadModel.page(third.getId(), 2, Sort.Direction.DESC));
+
+        EmployeeSearchCriteria criteria = new EmployeeSearchCriteria("readDept", 300, 500, "Read");
+        Specification<Employee> specification = Specification
+                .where(EmployeeSpecifications.departmentEquals(criteria.getDepartment()))
+                .and(EmployeeSpecifications.salaryBetween(criteria.getMinSalary(), criteria.getMaxSalary()))
+                .and(EmployeeSpecifications.nameStartsWith(criteria.getNamePrefix()));
+        List<Employee> expected = employeeRepository.findLimited(specification, Sort.by(Sort.Direction.ASC, "id"),
+                10);
+        Assert.assertEquals(3, expected.size());
+        Assert.assertEquals(expected, employeeReadModel.search(criteria, null, 10, Sort.Direction.ASC));
+
+        List<DepartmentStats> expectedStats = employeeRepository.summarizeDepartments();
+        employeeRepository.findMedianSalaries().forEach(median -> expectedStats.stream()
+                .filter(stats -> stats.getDepartment().equals(median.getDepartment()))
+                .forEach(stats -> stats.setMedianSalary(median.getMedianSalary())));
+        Assert.assertEquals(expectedStats, employeeReadModel.departmentStats(true));
+        Assert.assertEquals(employeeRepository.summarizeDepartment("readOther").get(),
+                employeeReadModel.departmentStats("readOther", false).get());
+        Assert.assertFalse(employeeReadModel.departmentStats("readNone", false).isPresent());
+        Assert.assertTrue(employeeReadModel.footprintBytes() > 0);
+    }
+
+    private Employee mirrored(long id) {
+        List<Employee> page = employeeReadModel.page(id - 1, 1, Sort.Direction.ASC);
+        return page.isEmpty() || page.get(0).getId() != id ? null : page.get(0);
+    }
+
+    private static EmployeeChangedEvent event(EmployeeChangedEvent.Type type, long id, String name, Long version) {
+        Employee employee = employee(name, 100, "readOrderDept");
+        employee.setId(id);
+        employee.setVersion(version);
+        return new EmployeeChangedEvent(type, Collections.singletonList(employee));
+    }
+
+    /**
+     * Positive test case - events applied out of commit order never replace a
+     * newer version, and a late update does not revive a deleted employee
+     */
+    @Test
+    public void appliesEventsByVersion() {
+        long id = employeeService.saveEmployee(employee("Order Zero", 100, "readOrderDept")).getId();
+        employeeReadModel.onEmployeeChanged(event(EmployeeChangedEvent.Type.UPDATED, id, "Order Two", 2L));
+        employeeReadModel.onEmployeeChanged(event(EmployeeChangedEvent.Type.UPDATED, id, "Order One", 1L));
+        Assert.assertEquals("Order Two", mirrored(id).getName());
+        Assert.assertEquals(Long.valueOf(2), mirrored(id).getVersion());
+
+        employeeService.deleteEmployee(id);
+        employeeReadModel.onEmployeeChanged(event(EmployeeChangedEvent.Type.UPDATED, id, "Order Three", 3L));
+        Assert.assertNull(mirrored(id));
+    }
+
+    /**
+     * Positive test case - concurrent unconditional updates of one employee
+     * leave the read model with the committed row and version
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void concurrentWriters() throws Exception {
+        long id = employeeService.saveEmployee(employee("Writer Zero", 100, "readWriterDept")).getId();
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < 4; writer++) {
+                int salary = 1000 * (writer + 1);
+                futures.add(writers.submit(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        employeeService.updateEmployee(id,
+                                employee("Writer " + salary, salary + i, "readWriterDept" + salary), null);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            writers.shutdown();
+        }
+        Employee stored = employeeRepository.findById(id).get();
+        Assert.assertEquals(Long.valueOf(80), stored.getVersion());
+        Assert.assertEquals(stored, mirrored(id));
+    }
+}
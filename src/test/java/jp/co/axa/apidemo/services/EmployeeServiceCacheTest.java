@@ -0,0 +1,89 @@
+package jp.co.axa.apidemo.services;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.error.EmployeeNotFoundException;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class EmployeeServiceCacheTest {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Cache cache;
+
+    private static Employee employee(String name) {
+        Employee employee = new Employee();
+        employee.setName(name);
+        employee.setSalary(100);
+        employee.setDepartment("cacheDept");
+        return employee;
+    }
+
+    @Before
+    public void setUp() {
+        cache = cacheManager.getCache(EmployeeService.EMPLOYEE_CACHE);
+        cache.clear();
+    }
+
+    /**
+     * Positive test case - saved employees are put, read ones are cached and
+     * updated ones are evicted
+     */
+    @Test
+    public void saveGetUpdate() {
+        Employee saved = employeeService.saveEmployee(employee("cacheName"));
+        Assert.assertNotNull(cache.get(saved.getId()));
+        cache.clear();
+
+        Employee loaded = employeeService.getEmployee(saved.getId());
+        Assert.assertSame(loaded, employeeService.getEmployee(saved.getId()));
+
+        employeeService.updateEmployee(saved.getId(), employee("cacheRenamed"), saved.getVersion());
+        Assert.assertNull(cache.get(saved.getId()));
+        Assert.assertEquals("cacheRenamed", employeeService.getEmployee(saved.getId()).getName());
+    }
+
+    /**
+     * Positive test case - deleted employees are evicted
+     */
+    @Test
+    public void delete() {
+        Long id = employeeService.saveEmployee(employee("cacheName")).getId();
+        employeeService.deleteEmployee(id);
+        Assert.assertNull(cache.get(id));
+        try {
+            employeeService.getEmployee(id);
+            Assert.fail();
+        } catch (EmployeeNotFoundException e) {
+            Assert.assertNull(cache.get(id));
+        }
+    }
+
+    /**
+     * Positive test case - batch updates evict every updated employee
+     */
+    @Test
+    public void batchUpdate() {
+        Long id = employeeService.saveEmployee(employee("cacheName")).getId();
+        Employee changed = employee("cacheRenamed");
+        changed.setId(id);
+        employeeService.updateEmployees(Arrays.asList(changed));
+        Assert.assertNull(cache.get(id));
+    }
+}
@@ -0,0 +1,430 @@
+package jp.co.axa.apidemo.services;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.validation.Validation;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jp.co.axa.apidemo.dto.BatchItemError;
+import jp.co.axa.apidemo.dto.EmployeeFieldsPage;
+import jp.co.axa.apidemo.dto.EmployeeLookup;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.EmployeeSearchCriteria;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.error.BatchValidationException;
+import jp.co.axa.apidemo.error.EmployeeNotFoundException;
+import jp.co.axa.apidemo.error.InvalidRequestException;
+import jp.co.axa.apidemo.error.VersionMismatchException;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.sharding.Shards;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EmployeeServiceTest {
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    // a single shard, as without sharding
+    @Spy
+    private Shards shards = new Shards();
+
+    @InjectMocks
+    private EmployeeService employeeService;
+
+    private EmployeeIdFilter employeeIdFilter;
+
+    @Before
+    public void setUp() {
+        employeeIdFilter = new EmployeeIdFilter();
+        ReflectionTestUtils.setField(employeeIdFilter, "employeeRepository", employeeRepository);
+        ReflectionTestUtils.setField(employeeIdFilter, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(employeeIdFilter, "shards", shards);
+        ReflectionTestUtils.setField(employeeService, "employeeIdFilter", employeeIdFilter);
+        ReflectionTestUtils.setField(employeeService, "validator",
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(employeeService, "batchChunkSize", 2);
+        ReflectionTestUtils.setField(employeeService, "cacheManager",
+                new ConcurrentMapCacheManager(EmployeeService.EMPLOYEE_CACHE));
+        Mockito.lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    private static Employee employee(long id) {
+        Employee employee = new Employee();
+        employee.setId(id);
+        employee.setName("mockName");
+        employee.setSalary(100);
+        employee.setDepartment("mockDept");
+        return employee;
+    }
+
+    /**
+     * Positive test case - first page asks for one extra row and hands out a
+     * cursor pointing at the last returned id
+     */
+    @Test
+    public void retrieveEmployees_firstPage() {
+        Mockito.when(employeeRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, PageRequest.of(0, 3)))
+                .thenReturn(new ArrayList<>(Arrays.asList(employee(1), employee(2), employee(3))));
+        EmployeePage page = employeeService.retrieveEmployees(null, 2, Sort.Direction.ASC);
+        Assert.assertEquals(2, page.getContent().size());
+        Assert.assertEquals(EmployeeCursor.encode(2L), page.getNextCursor());
+    }
+
+    /**
+     * Positive test case - cursor of the previous page becomes the keyset bound,
+     * and a short page is the last one
+     */
+    @Test
+    public void retrieveEmployees_lastPageDescending() {
+        Mockito.when(employeeRepository.findByIdLessThanOrderByIdDesc(eq(2L), any()))
+                .thenReturn(Arrays.asList(employee(1)));
+        EmployeePage page = employeeService.retrieveEmployees(EmployeeCursor.encode(2L), 2, Sort.Direction.DESC);
+        List<Employee> content = page.getContent();
+        Assert.assertEquals(1, content.size());
+        Assert.assertNull(page.getNextCursor());
+    }
+
+    /**
+     * Negative test case - cursor which was not produced by the service
+     */
+    @Test(expected = InvalidRequestException.class)
+    public void retrieveEmployees_invalidCursor() {
+        employeeService.retrieveEmployees("not-a-cursor", 2, Sort.Direction.ASC);
+    }
+
+    /**
+     * Negative test case - page size above the maximum
+     */
+    @Test(expected = InvalidRequestException.class)
+    public void retrieveEmployees_invalidLimit() {
+        employeeService.retrieveEmployees(null, EmployeeService.MAX_PAGE_SIZE + 1, Sort.Direction.ASC);
+    }
+
+    /**
+     * Positive test case - search fetches one extra row through the custom query
+     */
+    @Test
+    public void searchEmployees() {
+        Mockito.when(employeeRepository.findLimited(any(), eq(Sort.by(Sort.Direction.ASC, "id")), eq(2)))
+                .thenReturn(new ArrayList<>(Arrays.asList(employee(1), employee(2))));
+        EmployeePage page = employeeService.searchEmployees(
+                new EmployeeSearchCriteria("mockDept", 10, 1000, "mock"), null, 1, Sort.Direction.ASC);
+        Assert.assertEquals(1, page.getContent().size());
+        Assert.assertEquals(EmployeeCursor.encode(1L), page.getNextCursor());
+    }
+
+    /**
+     * Positive test case - selected columns are returned per employee and the
+     * cursor is taken from the id of the last one
+     */
+    @Test
+    public void searchEmployeeFields() {
+        List<Tuple> tuples = new ArrayList<>();
+        for (long id = 1; id <= 2; id++) {
+            Tuple tuple = Mockito.mock(Tuple.class);
+            Mockito.when(tuple.get("id")).thenReturn(id);
+            Mockito.when(tuple.get("name")).thenReturn("Employee " + id);
+            tuples.add(tuple);
+        }
+        List<String> fields = Arrays.asList("id", "name");
+        Mockito.when(employeeRepository.findLimitedFields(any(), eq(Sort.by(Sort.Direction.ASC, "id")), eq(2),
+                eq(fields))).thenReturn(tuples);
+        EmployeeFieldsPage page = employeeService.searchEmployeeFields(new EmployeeSearchCriteria(), null, 1,
+                Sort.Direction.ASC, fields);
+        Assert.assertEquals(1, page.getContent().size());
+        Assert.assertEquals(Arrays.asList("id", "name"), new ArrayList<>(page.getContent().get(0).keySet()));
+        Assert.assertEquals("Employee 1", page.getContent().get(0).get("name"));
+        Assert.assertEquals(EmployeeCursor.encode(1L), page.getNextCursor());
+    }
+
+    /**
+     * Positive test case - lookups keep the request order, use the cache and the
+     * id filter, load the rest in chunks and report unknown ids
+     */
+    @Test
+    public void lookupEmployees() {
+        Mockito.when(employeeRepository.streamAllIds()).thenReturn(Stream.of(1L, 2L, 3L, 4L, 5L));
+        employeeIdFilter.build();
+        ReflectionTestUtils.setField(employeeService, "lookupChunkSize", 2);
+        CacheManager cacheManager = (CacheManager) ReflectionTestUtils.getField(employeeService, "cacheManager");
+        cacheManager.getCache(EmployeeService.EMPLOYEE_CACHE).put(5L, employee(5));
+        Mockito.when(employeeRepository.findAllById(Arrays.asList(4L, 2L)))
+                .thenReturn(Arrays.asList(employee(2), employee(4)));
+        Mockito.when(employeeRepository.findAllById(Arrays.asList(3L))).thenReturn(Collections.emptyList());
+        EmployeeLookup lookup = employeeService.lookupEmployees(Arrays.asList(4L, 5L, 9L, 2L, 4L, 3L));
+        Assert.assertEquals(Arrays.asList(4L, 5L, 2L),
+                lookup.getEmployees().stream().map(Employee::getId).collect(Collectors.toList()));
+        Assert.assertEquals(Arrays.asList(9L, 3L), lookup.getMissing());
+        Mockito.verify(employeeRepository, Mockito.times(2)).findAllById(any());
+    }
+
+    /**
+     * Negative test case - empty id list
+     */
+    @Test(expected = InvalidRequestException.class)
+    public void lookupEmployees_empty() {
+        employeeService.lookupEmployees(Collections.emptyList());
+    }
+
+    /**
+     * Negative test case - empty salary range
+     */
+    @Test(expected = InvalidRequestException.class)
+    public void searchEmployees_invalidSalaryRange() {
+        employeeService.searchEmployees(new EmployeeSearchCriteria(null, 1000, 10, null), null, 10,
+                Sort.Direction.ASC);
+    }
+
+    /**
+     * Positive test case - one JSON document per line, each entity detached after
+     * being written
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void exportEmployees() throws Exception {
+        Employee first = employee(1);
+        Employee second = employee(2);
+        Mockito.when(employeeRepository.streamAllOrderById()).thenReturn(Stream.of(first, second));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Assert.assertEquals(2L, employeeService.exportEmployees(outputStream));
+        String expected = objectMapper.writeValueAsString(first) + "\n" + objectMapper.writeValueAsString(second)
+                + "\n";
+        Assert.assertEquals(expected, new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        Mockito.verify(entityManager).detach(first);
+        Mockito.verify(entityManager).detach(second);
+    }
+
+    /**
+     * Positive test case - batch insert runs one transaction per chunk, ignores
+     * client supplied ids and records the generated ones in the id filter
+     */
+    @Test
+    public void saveEmployees() {
+        List<Long> generated = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            Employee employee = invocation.getArgument(0);
+            Assert.assertNull(employee.getId());
+            employee.setId(100L + generated.size());
+            generated.add(employee.getId());
+            return null;
+        }).when(entityManager).persist(any(Employee.class));
+        Mockito.when(employeeRepository.streamAllIds()).thenReturn(Stream.empty());
+        employeeIdFilter.build();
+
+        List<Employee> employees = Arrays.asList(employee(1), employee(2), employee(3));
+        Assert.assertEquals(Arrays.asList(100L, 101L, 102L), employeeService.saveEmployees(employees));
+        Mockito.verify(transactionTemplate, Mockito.times(3)).execute(any());
+        Mockito.verify(entityManager, Mockito.times(3)).persist(any(Employee.class));
+        Mockito.verify(entityManager, Mockito.times(2)).flush();
+        Assert.assertTrue(employeeIdFilter.mightContain(102L));
+        Assert.assertFalse(employeeIdFilter.mightContain(1L));
+    }
+
+    /**
+     * Negative test case - every invalid item is reported and nothing is written
+     */
+    @Test
+    public void saveEmployees_invalidItems() {
+        Employee noName = employee(1);
+        noName.setName(null);
+        Employee noSalary = employee(2);
+        noSalary.setSalary(0);
+        try {
+            employeeService.saveEmployees(Arrays.asList(noName, employee(3), noSalary));
+            Assert.fail();
+        } catch (BatchValidationException e) {
+            List<BatchItemError> errors = e.getItemErrors();
+            Assert.assertEquals(2, errors.size());
+            Assert.assertEquals(0, errors.get(0).getIndex());
+            Assert.assertEquals("name", errors.get(0).getField());
+            Assert.assertEquals(2, errors.get(1).getIndex());
+            Assert.assertEquals("salary", errors.get(1).getField());
+        }
+        Mockito.verifyZeroInteractions(transactionTemplate, entityManager);
+    }
+
+    /**
+     * Negative test case - unknown and duplicate ids are rejected up front
+     */
+    @Test
+    public void updateEmployees_unknownAndDuplicateIds() {
+        Mockito.when(employeeRepository.findExistingIds(any())).thenReturn(Arrays.asList(1L));
+        try {
+            employeeService.updateEmployees(Arrays.asList(employee(1), employee(1), employee(9)));
+            Assert.fail();
+        } catch (BatchValidationException e) {
+            List<BatchItemError> errors = e.getItemErrors();
+            Assert.assertEquals(2, errors.size());
+            Assert.assertEquals("duplicate id in batch", errors.get(0).getMessage());
+            Assert.assertEquals(Long.valueOf(9), errors.get(1).getId());
+        }
+        Mockito.verifyZeroInteractions(transactionTemplate);
+    }
+
+    /**
+     * Positive test case - each chunk is loaded with a single IN query and
+     * updated in place
+     */
+    @Test
+    public void updateEmployees() {
+        Employee stored = employee(1);
+        Employee changed = employee(1);
+        changed.setName("changedName");
+        Mockito.when(employeeRepository.findExistingIds(any())).thenReturn(Arrays.asList(1L));
+        Mockito.when(employeeRepository.findAllById(Arrays.asList(1L))).thenReturn(Arrays.asList(stored));
+        Assert.assertEquals(Arrays.asList(1L), employeeService.updateEmployees(Arrays.asList(changed)));
+        Assert.assertEquals("changedName", stored.getName());
+        Mockito.verify(entityManager).flush();
+    }
+
+    /**
+     * Negative test case - when the second chunk fails, the employees of the
+     * committed first chunk are still evicted from the cache
+     */
+    @Test
+    public void updateEmployees_secondChunkFails() {
+        Cache cache = ((CacheManager) ReflectionTestUtils.getField(employeeService, "cacheManager"))
+                .getCache(EmployeeService.EMPLOYEE_CACHE);
+        for (long id = 1; id <= 3; id++) {
+            cache.put(id, employee(id));
+        }
+        Mockito.when(employeeRepository.findExistingIds(any())).thenReturn(Arrays.asList(1L, 2L, 3L));
+        Mockito.when(employeeRepository.findAllById(Arrays.asList(1L, 2L)))
+                .thenReturn(Arrays.asList(employee(1), employee(2)));
+        // removed after validation
+        Mockito.when(employeeRepository.findAllById(Arrays.asList(3L))).thenReturn(Collections.emptyList());
+        try {
+            employeeService.updateEmployees(Arrays.asList(employee(1), employee(2), employee(3)));
+            Assert.fail();
+        } catch (EmployeeNotFoundException e) {
+            Assert.assertNull(cache.get(1L));
+            Assert.assertNull(cache.get(2L));
+            Assert.assertNotNull(cache.get(3L));
+        }
+    }
+
+    /**
+     * Positive test case - update is a single statement, nothing is loaded
+     */
+    @Test
+    public void updateEmployee() {
+        Employee changed = employee(1);
+        Mockito.when(employeeRepository.updateById(1L, "mockName", 100, "mockDept")).thenReturn(1);
+        employeeService.updateEmployee(1L, changed, null);
+        Mockito.verify(employeeRepository, Mockito.never()).findById(any());
+    }
+
+    /**
+     * Negative test case - no row updated means the employee does not exist
+     */
+    @Test(expected = EmployeeNotFoundException.class)
+    public void updateEmployee_employeeNotFound() {
+        Mockito.when(employeeRepository.updateById(eq(11L), any(), any(), any())).thenReturn(0);
+        employeeService.updateEmployee(11L, employee(11), null);
+    }
+
+    /**
+     * Negative test case - conditional update of an employee with another version
+     */
+    @Test(expected = VersionMismatchException.class)
+    public void updateEmployee_versionMismatch() {
+        Mockito.when(employeeRepository.updateByIdAndVersion(eq(1L), eq(2L), any(), any(), any())).thenReturn(0);
+        Mockito.when(employeeRepository.existsById(1L)).thenReturn(true);
+        employeeService.updateEmployee(1L, employee(1), 2L);
+    }
+
+    /**
+     * Positive test case - ids unknown to the built id filter are rejected without
+     * a query, known and newly saved ones are looked up
+     */
+    @Test
+    public void getEmployee_idFilter() {
+        Mockito.when(employeeRepository.streamAllIds()).thenReturn(Stream.of(1L));
+        employeeIdFilter.build();
+        try {
+            employeeService.getEmployee(2L);
+            Assert.fail();
+        } catch (EmployeeNotFoundException e) {
+            Assert.assertEquals(0, e.getStackTrace().length);
+        }
+        Mockito.verify(employeeRepository, Mockito.never()).findById(any());
+
+        Mockito.when(employeeRepository.findById(1L)).thenReturn(Optional.of(employee(1)));
+        Assert.assertEquals(Long.valueOf(1), employeeService.getEmployee(1L).getId());
+
+        Mockito.when(employeeRepository.save(any())).thenReturn(employee(2));
+        employeeService.saveEmployee(employee(0));
+        Mockito.when(employeeRepository.findById(2L)).thenReturn(Optional.of(employee(2)));
+        Assert.assertEquals(Long.valueOf(2), employeeService.getEmployee(2L).getId());
+
+        Mockito.when(employeeRepository.removeById(2L)).thenReturn(1);
+        employeeService.deleteEmployee(2L);
+        Assert.assertFalse(employeeIdFilter.mightContain(2L));
+    }
+
+    /**
+     * Positive test case - delete is a single statement, nothing is loaded
+     */
+    @Test
+    public void deleteEmployee() {
+        Mockito.when(employeeRepository.removeById(1L)).thenReturn(1);
+        employeeService.deleteEmployee(1L);
+        Mockito.verify(employeeRepository, Mockito.never()).findById(any());
+    }
+
+    /**
+     * Negative test case - no row deleted means the employee does not exist
+     */
+    @Test(expected = EmployeeNotFoundException.class)
+    public void deleteEmployee_employeeNotFound() {
+        Mockito.when(employeeRepository.removeById(11L)).thenReturn(0);
+        employeeService.deleteEmployee(11L);
+    }
+}
@@ -0,0 +1,234 @@
+package jp.co.axa.apidemo.sharding;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.dto.EmployeeLookup;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.EmployeeSearchCriteria;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.error.EmployeeNotFoundException;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.services.DepartmentService;
+import jp.co.axa.apidemo.services.EmployeeService;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("sharded")
+@SpringBootTest(properties = "employee.sharding.shards=3")
+public class EmployeeShardingTest {
+
+    private static final List<String> DEPARTMENTS = Arrays.asList("Sales", "Engineering", "Finance", "Legal",
+            "Support", "Marketing");
+
+    @Autowired
+    private Shards shards;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private DepartmentService departmentService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    private static Employee employee(String name, Integer salary, String department) {
+        Employee employee = new Employee();
+        employee.setName(name);
+        employee.setSalary(salary);
+        employee.setDepartment(department);
+        return employee;
+    }
+
+    private List<Employee> saveEmployees() {
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            employees.add(employee("Shard " + i, i % 7 == 0 ? null : 100 + i * 13, DEPARTMENTS.get(i % 6)));
+        }
+        employeeService.saveEmployees(employees);
+        employees.add(employeeService.saveEmployee(employee("Shard single", 101, "Sales")));
+        return employees;
+    }
+
+    private List<Employee> shardRows(int shard) {
+        return shards.call(shard,
+                () -> employeeRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, PageRequest.of(0, 1000)));
+    }
+
+    private List<Employee> allRows() {
+        List<Employee> rows = new ArrayList<>();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            rows.addAll(shardRows(shard));
+        }
+        rows.sort(Comparator.comparing(Employee::getId));
+        return rows;
+    }
+
+    private List<Employee> pageThrough(EmployeeSearchCriteria criteria, Sort.Direction direction) {
+        List<Employee> employees = new ArrayList<>();
+        String after = null;
+        do {
+            EmployeePage page = criteria == null ? employeeService.retrieveEmployees(after, 7, direction)
+                    : employeeService.searchEmployees(criteria, after, 7, direction);
+            employees.addAll(page.getContent());
+            after = page.getNextCursor();
+        } while (after != null);
+        return employees;
+    }
+
+    /**
+     * Positive test case - every employee lives on the shard of its department,
+     * which its id encodes, and each shard only holds its own rows
+     */
+    @Test
+    public void placesByDepartment() {
+        List<Employee> saved = saveEmployees();
+        Assert.assertEquals(3, shards.count());
+        Assert.assertEquals(3, DEPARTMENTS.stream().map(shards::ofDepartment).distinct().count());
+        for (Employee employee : saved) {
+            Assert.assertEquals(shards.ofDepartment(employee.getDepartment()), shards.ofId(employee.getId()));
+        }
+        for (int shard = 0; shard < shards.count(); shard++) {
+            List<Employee> rows = shardRows(shard);
+            Assert.assertFalse(rows.isEmpty());
+            for (Employee row : rows) {
+                Assert.assertEquals(shard, shards.ofId(row.getId()));
+            }
+        }
+    }
+
+    /**
+     * Positive test case - pages and searches merged from every shard follow the
+     * global id order
+     */
+    @Test
+    public void mergesPagesById() {
+        saveEmployees();
+        List<Employee> expected = allRows();
+        Assert.assertEquals(expected, pageThrough(null, Sort.Direction.ASC));
+        List<Employee> descending = new ArrayList<>(expected);
+        Collections.reverse(descending);
+        Assert.assertEquals(descending, pageThrough(null, Sort.Direction.DESC));
+
+        EmployeeSearchCriteria criteria = new EmployeeSearchCriteria(null, 150, 500, "Shard");
+        Assert.assertEquals(expected.stream()
+                .filter(employee -> employee.getSalary() != null && employee.getSalary() >= 150
+                        && employee.getSalary() <= 500)
+                .collect(Collectors.toList()), pageThrough(criteria, Sort.Direction.ASC));
+    }
+
+    /**
+     * Positive test case - department statistics merged from every shard match
+     * the figures of all rows
+     */
+    @Test
+    public void mergesDepartmentStats() {
+        saveEmployees();
+        List<Employee> rows = allRows();
+        List<DepartmentStats> stats = departmentService.retrieveDepartmentStats(true);
+        Assert.assertEquals(rows.stream().map(Employee::getDepartment).distinct().sorted()
+                .collect(Collectors.toList()),
+                stats.stream().map(DepartmentStats::getDepartment).collect(Collectors.toList()));
+        for (DepartmentStats departmentStats : stats) {
+            List<Employee> members = rows.stream()
+                    .filter(employee -> employee.getDepartment().equals(departmentStats.getDepartment()))
+                    .collect(Collectors.toList());
+            int[] salaries = members.stream().filter(employee -> employee.getSalary() != null)
+                    .mapToInt(Employee::getSalary).sorted().toArray();
+            Assert.assertEquals(members.size(), departmentStats.getHeadcount());
+            Assert.assertEquals(Long.valueOf(Arrays.stream(salaries).asLongStream().sum()),
+                    departmentStats.getTotalSalary());
+            Assert.assertEquals(Integer.valueOf(salaries[0]), departmentStats.getMinSalary());
+            Assert.assertEquals(Integer.valueOf(salaries[salaries.length - 1]), departmentStats.getMaxSalary());
+            Assert.assertEquals(Arrays.stream(salaries).average().getAsDouble(),
+                    departmentStats.getAverageSalary(), 0.001);
+            int middle = salaries.length / 2;
+            double median = salaries.length % 2 == 1 ? salaries[middle]
+                    : (salaries[middle - 1] + salaries[middle]) / 2.0;
+            Assert.assertEquals(median, departmentStats.getMedianSalary(), 0.001);
+            Assert.assertEquals(departmentStats,
+                    departmentService.getDepartmentStats(departmentStats.getDepartment(), true));
+        }
+    }
+
+    /**
+     * Positive test case - the mean of a department whose employees sit on two
+     * shards is weighted by the exact salary count of each shard
+     */
+    @Test
+    public void mergesDepartmentStats_fractionalMean() {
+        String department = "Shard fraction";
+        String other = DEPARTMENTS.stream()
+                .filter(name -> shards.ofDepartment(name) != shards.ofDepartment(department)).findFirst().get();
+        employeeService.saveEmployee(employee("Shard fraction 1", 1, department));
+        employeeService.saveEmployee(employee("Shard fraction 2", 2, department));
+        employeeService.saveEmployee(employee("Shard fraction 3", null, department));
+        Employee moved = employeeService.saveEmployee(employee("Shard fraction 4", 2, other));
+        employeeService.updateEmployee(moved.getId(), employee("Shard fraction 4", 2, department), 0L);
+
+        DepartmentStats stats = departmentService.getDepartmentStats(department, false);
+        Assert.assertEquals(4, stats.getHeadcount());
+        Assert.assertEquals(3, stats.getSalaryCount());
+        Assert.assertEquals(Long.valueOf(5), stats.getTotalSalary());
+        Assert.assertEquals(5 / 3.0, stats.getAverageSalary(), 0);
+        Assert.assertEquals(stats, departmentService.retrieveDepartmentStats(false).stream()
+                .filter(departmentStats -> departmentStats.getDepartment().equals(department)).findFirst().get());
+    }
+
+    /**
+     * Positive test case - reads and writes by id are routed to the shard of the
+     * employee, which keeps it after a department change
+     */
+    @Test
+    public void routesById() throws IOException {
+        List<Employee> saved = saveEmployees();
+        Employee moved = saved.stream().filter(employee -> shards.ofId(employee.getId()) != 0).findFirst().get();
+        String department = DEPARTMENTS.stream()
+                .filter(name -> shards.ofDepartment(name) != shards.ofId(moved.getId())).findFirst().get();
+        employeeService.updateEmployee(moved.getId(), employee("Shard moved", 999, department), 0L);
+        Employee reloaded = employeeService.getEmployee(moved.getId());
+        Assert.assertEquals(department, reloaded.getDepartment());
+        Assert.assertEquals(Long.valueOf(1), reloaded.getVersion());
+        Assert.assertTrue(shardRows(shards.ofId(moved.getId())).contains(reloaded));
+
+        Employee batchUpdate = employee("Shard batch", 998, "Legal");
+        batchUpdate.setId(saved.get(1).getId());
+        employeeService.updateEmployees(Arrays.asList(batchUpdate));
+        Assert.assertEquals("Shard batch", employeeService.getEmployee(batchUpdate.getId()).getName());
+
+        EmployeeLookup lookup = employeeService.lookupEmployees(Arrays.asList(saved.get(2).getId(),
+                saved.get(3).getId(), saved.get(4).getId(), -1L));
+        Assert.assertEquals(Arrays.asList(saved.get(2).getId(), saved.get(3).getId(), saved.get(4).getId()),
+                lookup.getEmployees().stream().map(Employee::getId).collect(Collectors.toList()));
+        Assert.assertEquals(Arrays.asList(-1L), lookup.getMissing());
+
+        ByteArrayOutputStream export = new ByteArrayOutputStream();
+        Assert.assertEquals(allRows().size(), employeeService.exportEmployees(export));
+
+        employeeService.deleteEmployee(moved.getId());
+        try {
+            employeeService.getEmployee(moved.getId());
+            Assert.fail();
+        } catch (EmployeeNotFoundException e) {
+            Assert.assertFalse(shardRows(shards.ofId(moved.getId())).stream()
+                    .anyMatch(employee -> employee.getId().equals(moved.getId())));
+        }
+    }
+}